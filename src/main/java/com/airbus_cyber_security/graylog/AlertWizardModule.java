@@ -22,11 +22,18 @@ package com.airbus_cyber_security.graylog;
 
 import com.airbus_cyber_security.graylog.alert.AlertRuleService;
 import com.airbus_cyber_security.graylog.alert.AlertRuleServiceImpl;
+import com.airbus_cyber_security.graylog.alert.processor.ListRulesMessageProcessor;
 import com.airbus_cyber_security.graylog.alert.rest.AlertRuleResource;
 import com.airbus_cyber_security.graylog.audit.AlertWizardAuditEventTypes;
 import com.airbus_cyber_security.graylog.config.rest.AlertWizardConfigResource;
+import com.airbus_cyber_security.graylog.list.AlertListIndex;
 import com.airbus_cyber_security.graylog.list.AlertListService;
 import com.airbus_cyber_security.graylog.list.AlertListServiceImpl;
+import com.airbus_cyber_security.graylog.list.AlertListSnapshotPeriodical;
+import com.airbus_cyber_security.graylog.list.functions.ContainsWizardList;
+import com.airbus_cyber_security.graylog.list.functions.InWizardList;
+import com.airbus_cyber_security.graylog.list.lookup.AlertListDataAdapter;
+import com.airbus_cyber_security.graylog.list.lookup.AlertListLookupCache;
 import com.airbus_cyber_security.graylog.list.rest.AlertListResource;
 import com.airbus_cyber_security.graylog.permissions.AlertRuleRestPermissions;
 import org.graylog2.plugin.PluginConfigBean;
@@ -53,11 +60,22 @@ public class AlertWizardModule extends PluginModule {
     protected void configure() {
     	bind(AlertRuleService.class).to(AlertRuleServiceImpl.class);
         bind(AlertListService.class).to(AlertListServiceImpl.class);
+        bind(AlertListIndex.class).asEagerSingleton();
+        addPeriodical(AlertListSnapshotPeriodical.class);
 
         addPermissions(AlertRuleRestPermissions.class);
         addRestResource(AlertRuleResource.class);
         addAuditEventTypes(AlertWizardAuditEventTypes.class);
         addRestResource(AlertWizardConfigResource.class);
         addRestResource(AlertListResource.class);
+
+        installLookupDataAdapter(AlertListDataAdapter.NAME, AlertListDataAdapter.class,
+                AlertListDataAdapter.Factory.class, AlertListDataAdapter.Config.class);
+        installLookupCache(AlertListLookupCache.NAME, AlertListLookupCache.class,
+                AlertListLookupCache.Factory.class, AlertListLookupCache.Config.class);
+
+        addMessageProcessorFunction(InWizardList.NAME, InWizardList.class);
+        addMessageProcessorFunction(ContainsWizardList.NAME, ContainsWizardList.class);
+        addMessageProcessor(ListRulesMessageProcessor.class, ListRulesMessageProcessor.Descriptor.class);
     }
 }
@@ -43,6 +43,11 @@ public interface AlertRuleService {
     
     boolean isPresent(String title);
 
+    /**
+     * @return whether an alert rule other than the given one routes messages through the stream
+     */
+    boolean isStreamUsedByOthers(String streamID, String title);
+
     boolean isValidRequest(AlertRuleRequest request);
 
     boolean isValidImportRequest(ExportAlertRule request);
@@ -48,6 +48,8 @@ public class AlertRuleServiceImpl implements AlertRuleService {
 	private final Validator validator;
 	private static final Logger LOG = LoggerFactory.getLogger(AlertRuleServiceImpl.class);
 	private static final String TITLE = "title";
+	private static final String STREAM = "stream";
+	private static final String SECOND_STREAM = "stream2";
 
 	@Inject
 	public AlertRuleServiceImpl(MongoConnection mongoConnection, MongoJackObjectMapperProvider mapperProvider,
@@ -121,6 +123,12 @@ public class AlertRuleServiceImpl implements AlertRuleService {
 		return (coll.getCount(DBQuery.is(TITLE, title)) > 0);
 	}
 
+	@Override
+	public boolean isStreamUsedByOthers(String streamID, String title) {
+		return coll.getCount(DBQuery.or(DBQuery.is(STREAM, streamID), DBQuery.is(SECOND_STREAM, streamID))
+				.notEquals(TITLE, title)) > 0;
+	}
+
 	private List<AlertRule> toAbstractListType(DBCursor<AlertRuleImpl> alerts) {
 		return toAbstractListType(alerts.toArray());
 	}
@@ -0,0 +1,238 @@
+/*
+ * graylog-plugin-alert-wizard Source Code
+ * Copyright (C) 2018-2020 - Airbus CyberSecurity (SAS) - All rights reserved
+ *
+ * This file is part of the graylog-plugin-alert-wizard GPL Source Code.
+ *
+ * graylog-plugin-alert-wizard Source Code is free software:
+ * you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * This code is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this code.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.airbus_cyber_security.graylog.alert.processor;
+
+import com.airbus_cyber_security.graylog.alert.AlertRule;
+import com.airbus_cyber_security.graylog.alert.AlertRuleService;
+import com.airbus_cyber_security.graylog.alert.FieldRule;
+import com.airbus_cyber_security.graylog.alert.FieldRuleImpl;
+import com.airbus_cyber_security.graylog.alert.events.AlertRulesChangedEvent;
+import com.airbus_cyber_security.graylog.list.AlertListIndex;
+import com.airbus_cyber_security.graylog.list.IndexedAlertList;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ListMultimap;
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+import org.graylog2.plugin.Message;
+import org.graylog2.plugin.Messages;
+import org.graylog2.plugin.messageprocessors.MessageProcessor;
+import org.graylog2.plugin.streams.Stream;
+import org.graylog2.streams.StreamService;
+import org.graylog2.streams.events.StreamDeletedEvent;
+import org.graylog2.streams.events.StreamsChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Routes messages to the alert streams whose list rules they match, without going through the pipeline processor.
+ * Only the alert rules saved in the message processor mode (list rules without a pipeline rule) are evaluated here.
+ * The routing table is compiled from the alert rules and rebuilt when alert rules or the streams it routes to change.
+ */
+@Singleton
+public class ListRulesMessageProcessor implements MessageProcessor {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ListRulesMessageProcessor.class);
+
+    private final AlertRuleService alertRuleService;
+    private final StreamService streamService;
+    private final AlertListIndex alertListIndex;
+    private final AtomicReference<RoutingTable> routes = new AtomicReference<>();
+
+    @Inject
+    public ListRulesMessageProcessor(AlertRuleService alertRuleService, StreamService streamService,
+                                     AlertListIndex alertListIndex, EventBus serverEventBus) {
+        this.alertRuleService = alertRuleService;
+        this.streamService = streamService;
+        this.alertListIndex = alertListIndex;
+        serverEventBus.register(this);
+    }
+
+    @Override
+    public Messages process(Messages messages) {
+        final List<ListRoute> currentRoutes = getRoutes().routes;
+        if (currentRoutes.isEmpty()) {
+            return messages;
+        }
+        for (Message message : messages) {
+            for (ListRoute route : currentRoutes) {
+                if (route.matches(message)) {
+                    message.addStream(route.stream);
+                }
+            }
+        }
+        return messages;
+    }
+
+    @Subscribe
+    public void handleAlertRulesChanged(AlertRulesChangedEvent event) {
+        routes.set(load());
+    }
+
+    @Subscribe
+    public void handleStreamsChanged(StreamsChangedEvent event) {
+        reloadIfRouted(event.streamIds());
+    }
+
+    @Subscribe
+    public void handleStreamDeleted(StreamDeletedEvent event) {
+        reloadIfRouted(ImmutableSet.of(event.streamId()));
+    }
+
+    /**
+     * Streams change for many reasons unrelated to the wizard, the table is only rebuilt for the streams it routes to.
+     */
+    private void reloadIfRouted(Set<String> streamIDs) {
+        final RoutingTable currentRoutes = routes.get();
+        if (currentRoutes == null || !Collections.disjoint(currentRoutes.streamIDs, streamIDs)) {
+            routes.set(load());
+        }
+    }
+
+    private RoutingTable getRoutes() {
+        final RoutingTable currentRoutes = routes.get();
+        if (currentRoutes != null) {
+            return currentRoutes;
+        }
+        routes.compareAndSet(null, load());
+        return routes.get();
+    }
+
+    private RoutingTable load() {
+        final ListMultimap<String, List<FieldRuleImpl>> fieldRulesByStream = ArrayListMultimap.create();
+        final ImmutableList.Builder<ListRoute> builder = ImmutableList.builder();
+        try {
+            for (AlertRule alertRule : alertRuleService.all()) {
+                if (alertRule.getPipelineRuleID() == null) {
+                    collectFieldRules(fieldRulesByStream, alertRule.getStreamID(), alertRule.getPipelineFieldRules());
+                }
+                if (alertRule.getSecondPipelineRuleID() == null) {
+                    collectFieldRules(fieldRulesByStream, alertRule.getSecondStreamID(), alertRule.getSecondPipelineFieldRules());
+                }
+            }
+            if (!fieldRulesByStream.isEmpty()) {
+                // A single query for the streams of all the routes
+                for (Stream stream : streamService.loadByIds(fieldRulesByStream.keySet())) {
+                    for (List<FieldRuleImpl> fieldRules : fieldRulesByStream.get(stream.getId())) {
+                        addRoute(builder, stream, fieldRules);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            LOG.error("Unable to load the list rules of the wizard alert rules", e);
+        }
+        // Paused or missing streams are kept among the routed streams, so that resuming or recreating them rebuilds the table
+        return new RoutingTable(builder.build(), ImmutableSet.copyOf(fieldRulesByStream.keySet()));
+    }
+
+    private static void collectFieldRules(ListMultimap<String, List<FieldRuleImpl>> fieldRulesByStream, String streamID,
+                                          List<FieldRuleImpl> fieldRules) {
+        if (streamID == null || fieldRules == null || fieldRules.isEmpty()) {
+            return;
+        }
+        fieldRulesByStream.put(streamID, fieldRules);
+    }
+
+    private void addRoute(ImmutableList.Builder<ListRoute> builder, Stream stream, List<FieldRuleImpl> fieldRules) {
+        if (stream.isPaused()) {
+            return;
+        }
+        final ImmutableList.Builder<ListCondition> conditions = ImmutableList.builder();
+        for (FieldRule fieldRule : fieldRules) {
+            conditions.add(new ListCondition(fieldRule.getField(), fieldRule.getValue(), fieldRule.getType() < 0));
+        }
+        builder.add(new ListRoute(stream, stream.getMatchingType() == Stream.MatchingType.OR, conditions.build()));
+    }
+
+    private static class RoutingTable {
+        private final List<ListRoute> routes;
+        private final Set<String> streamIDs;
+
+        private RoutingTable(List<ListRoute> routes, Set<String> streamIDs) {
+            this.routes = routes;
+            this.streamIDs = streamIDs;
+        }
+    }
+
+    private static class ListRoute {
+        private final Stream stream;
+        private final boolean matchAny;
+        private final List<ListCondition> conditions;
+
+        private ListRoute(Stream stream, boolean matchAny, List<ListCondition> conditions) {
+            this.stream = stream;
+            this.matchAny = matchAny;
+            this.conditions = conditions;
+        }
+
+        private boolean matches(Message message) {
+            for (ListCondition condition : conditions) {
+                if (condition.matches(message) == matchAny) {
+                    return matchAny;
+                }
+            }
+            return !matchAny;
+        }
+    }
+
+    private class ListCondition {
+        private final String field;
+        private final String list;
+        private final boolean inverted;
+
+        private ListCondition(String field, String list, boolean inverted) {
+            this.field = field;
+            this.list = list;
+            this.inverted = inverted;
+        }
+
+        private boolean matches(Message message) {
+            final Object value = message.getField(field);
+            if (value == null) {
+                return false;
+            }
+            final Optional<IndexedAlertList> alertList = alertListIndex.get(list);
+            final boolean found = alertList.isPresent() && alertList.get().contains(value);
+            return found != inverted;
+        }
+    }
+
+    public static class Descriptor implements MessageProcessor.Descriptor {
+        @Override
+        public String name() {
+            return "Wizard list rules processor";
+        }
+
+        @Override
+        public String className() {
+            return ListRulesMessageProcessor.class.getCanonicalName();
+        }
+    }
+}
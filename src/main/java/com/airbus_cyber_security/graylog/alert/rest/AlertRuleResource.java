@@ -32,6 +32,9 @@ import com.airbus_cyber_security.graylog.alert.rest.models.responses.GetListAler
 import com.airbus_cyber_security.graylog.alert.rest.models.responses.GetListDataAlertRule;
 import com.airbus_cyber_security.graylog.alert.utilities.AlertRuleUtils;
 import com.airbus_cyber_security.graylog.alert.utilities.AlertRuleUtilsService;
+import com.airbus_cyber_security.graylog.alert.utilities.ClusterEventBatch;
+import com.airbus_cyber_security.graylog.alert.utilities.DefaultStreamConnections;
+import com.airbus_cyber_security.graylog.alert.utilities.SharedStreams;
 import com.airbus_cyber_security.graylog.alert.utilities.StreamPipelineObject;
 import com.airbus_cyber_security.graylog.alert.utilities.StreamPipelineService;
 import com.airbus_cyber_security.graylog.audit.AlertWizardAuditEventTypes;
@@ -42,6 +45,7 @@ import com.airbus_cyber_security.graylog.list.AlertListService;
 import com.airbus_cyber_security.graylog.list.utilities.AlertListUtilsService;
 import com.airbus_cyber_security.graylog.permissions.AlertRuleRestPermissions;
 import com.codahale.metrics.annotation.Timed;
+import com.google.common.collect.ImmutableSet;
 import com.mongodb.MongoException;
 import io.swagger.annotations.*;
 import org.apache.shiro.authz.annotation.RequiresAuthentication;
@@ -52,7 +56,8 @@ import org.graylog.events.rest.EventNotificationsResource;
 import org.graylog.plugins.pipelineprocessor.db.*;
 import org.graylog2.alerts.AlertService;
 import org.graylog2.audit.jersey.AuditEvent;
-import org.graylog2.configuration.HttpConfiguration;
+import org.graylog2.bindings.providers.MongoJackObjectMapperProvider;
+import org.graylog2.database.MongoConnection;
 import org.graylog2.database.NotFoundException;
 import org.graylog2.events.ClusterEventBus;
 import org.graylog2.indexer.IndexSetRegistry;
@@ -69,7 +74,6 @@ import org.graylog2.plugin.streams.Stream;
 import org.graylog2.shared.rest.resources.RestResource;
 import org.graylog2.streams.StreamRuleService;
 import org.graylog2.streams.StreamService;
-import org.graylog2.streams.events.StreamsChangedEvent;
 import org.joda.time.DateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -82,8 +86,11 @@ import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 @Api(value = "Wizard/Alerts", description = "Management of Wizard alerts rules.")
 @Path("/alerts")
@@ -97,7 +104,6 @@ public class AlertRuleResource extends RestResource implements PluginRestResourc
 
 
     private final StreamService streamService;
-    private final ClusterEventBus clusterEventBus;
     private final ClusterConfigService clusterConfigService;
     private final EventDefinitionsResource eventDefinitionsResource;
     private final EventNotificationsResource eventNotificationsResource;
@@ -106,6 +112,8 @@ public class AlertRuleResource extends RestResource implements PluginRestResourc
     private final AlertRuleUtils alertRuleUtils;
     private final AlertRuleUtilsService alertRuleUtilsService;
     private final StreamPipelineService streamPipelineService;
+    private final ClusterEventBatch clusterEventBatch;
+    private SharedStreams sharedStreams;
     private final AlertListUtilsService alertListUtilsService;
     private final AlertRuleExporter alertRuleExporter;
 
@@ -115,7 +123,6 @@ public class AlertRuleResource extends RestResource implements PluginRestResourc
                              RuleService ruleService,
                              PipelineService pipelineService,
                              DBDataAdapterService dbDataAdapterService,
-                             HttpConfiguration httpConfiguration,
                              DBCacheService dbCacheService,
                              DBLookupTableService dbTableService,
                              StreamService streamService,
@@ -124,13 +131,13 @@ public class AlertRuleResource extends RestResource implements PluginRestResourc
                              IndexSetRegistry indexSetRegistry,
                              AlertService alertService,
                              ClusterConfigService clusterConfigService,
-                             PipelineStreamConnectionsService pipelineStreamConnectionsService,
+                             MongoConnection mongoConnection,
+                             MongoJackObjectMapperProvider mapperProvider,
                              AlertListService alertListService,
                              EventDefinitionsResource eventDefinitionsResource,
                              EventNotificationsResource eventNotificationsResource) {
         this.alertRuleService = alertRuleService;
         this.streamService = streamService;
-        this.clusterEventBus = clusterEventBus;
         this.clusterConfigService = clusterConfigService;
         this.eventDefinitionsResource = eventDefinitionsResource;
         this.eventNotificationsResource = eventNotificationsResource;
@@ -151,18 +158,67 @@ public class AlertRuleResource extends RestResource implements PluginRestResourc
                 eventDefinitionsResource,
                 eventNotificationsResource,
                 clusterConfigService);
+        this.clusterEventBatch = new ClusterEventBatch(clusterEventBus);
         this.streamPipelineService = new StreamPipelineService(
                 streamService,
                 streamRuleService,
                 clusterEventBus,
+                clusterEventBatch,
                 indexSetRegistry.getDefault().getConfig().id(),
                 ruleService,
                 pipelineService,
                 dbDataAdapterService,
-                httpConfiguration,
                 dbCacheService,
                 dbTableService,
-                pipelineStreamConnectionsService);
+                new DefaultStreamConnections(mongoConnection, mapperProvider, clusterEventBus),
+                mongoConnection,
+                clusterConfigService,
+                alertRuleService);
+    }
+
+    /**
+     * Streams of the alert rules by routing, loaded on first use when sharing is enabled
+     * and kept up to date for the rest of the request.
+     */
+    private SharedStreams sharedStreams() {
+        if (sharedStreams == null) {
+            sharedStreams = streamPipelineService.loadSharedStreams(alertRuleService.all());
+        }
+        return sharedStreams;
+    }
+
+    private void registerStreams(String title, StreamPipelineObject streamPipelineObject,
+                                 StreamPipelineObject streamPipelineObject2) throws NotFoundException {
+        if (sharedStreams == null) {
+            return;
+        }
+        sharedStreams.register(title, streamService.load(streamPipelineObject.getStream().getId()),
+                streamPipelineObject.getListPipelineFieldRule());
+        if (streamPipelineObject2.getStream() != null) {
+            sharedStreams.register(title, streamService.load(streamPipelineObject2.getStream().getId()),
+                    streamPipelineObject2.getListPipelineFieldRule());
+        }
+    }
+
+    private void alertRulesChanged(Set<String> titles) {
+        streamPipelineService.updateSharedPipeline(alertRuleService::all);
+        clusterEventBatch.alertRulesChanged(titles);
+    }
+
+    /**
+     * Applies the pipeline connections, sends the cluster events and list usage changes collected during an operation,
+     * including when it failed part way.
+     */
+    private void flush() {
+        try {
+            streamPipelineService.flushPipelineConnections();
+        } finally {
+            try {
+                clusterEventBatch.flush();
+            } finally {
+                alertListUtilsService.flushUsageChanges();
+            }
+        }
     }
 
     @GET
@@ -264,7 +320,7 @@ public class AlertRuleResource extends RestResource implements PluginRestResourc
                 alertTitle = newAlertTitle;
             }else if(importPolicy != null && importPolicy.equals(ImportPolicyType.REPLACE)) {
                 try {
-                    this.delete(alertTitle);
+                    deleteAlertRule(alertTitle);
                 } catch (MongoException | UnsupportedEncodingException e) {
                     LOG.error("Failed to replace alert rule");
                     throw new BadRequestException("Failed to replace alert rule.");
@@ -286,75 +342,79 @@ public class AlertRuleResource extends RestResource implements PluginRestResourc
     @AuditEvent(type = AlertWizardAuditEventTypes.WIZARD_ALERTS_RULES_CREATE)
     public Response create(@ApiParam(name = "JSON body", required = true) @Valid @NotNull AlertRuleRequest request)
     		throws ValidationException, BadRequestException {
+        try {
+            alertRuleUtilsService.checkIsValidRequest(request);
+
+            String alertTitle = checkImportPolicyAndGetTitle(request.getTitle());
+            String userName = getCurrentUser().getName();
+
+            // Create stream and pipeline
+            StreamPipelineObject streamPilpelineObject = streamPipelineService.createStreamAndPipeline(request.getStream(), alertTitle, userName, request.getStream().getMatchingType(), this::sharedStreams);
+
+            //Create unique data adapter
+            DataAdapterDto adapter = streamPipelineService.createUniqueDataAdapter();
+            CacheDto cache = streamPipelineService.createUniqueCache();
+            streamPipelineService.createUniqueLookup(cache, adapter);
+
+            // Create second stream and pipeline
+            String streamID2 = null;
+            StreamPipelineObject streamPilpelineObject2 = new StreamPipelineObject(null,null,null,null);
+            if(request.getConditionType().equals("THEN") || request.getConditionType().equals("AND") || request.getConditionType().equals("OR")) {
+                streamPilpelineObject2 = streamPipelineService.createStreamAndPipeline(request.getSecondStream(), alertTitle + "#2", userName, request.getStream().getMatchingType(), this::sharedStreams);
+                streamID2=streamPilpelineObject2.getStream().getId();
+            }
 
-        alertRuleUtilsService.checkIsValidRequest(request);
-
-        String alertTitle = checkImportPolicyAndGetTitle(request.getTitle());
-        String userName = getCurrentUser().getName();
-
-        // Create stream and pipeline
-        StreamPipelineObject streamPilpelineObject = streamPipelineService.createStreamAndPipeline(request.getStream(), alertTitle, userName, request.getStream().getMatchingType());
-
-        //Create unique data adapter
-        DataAdapterDto adapter = streamPipelineService.createUniqueDataAdapter(userName);
-        CacheDto cache = streamPipelineService.createUniqueCache();
-        streamPipelineService.createUniqueLookup(cache, adapter);
-
-        // Create second stream and pipeline
-        String streamID2 = null;
-        StreamPipelineObject streamPilpelineObject2 = new StreamPipelineObject(null,null,null,null);
-        if(request.getConditionType().equals("THEN") || request.getConditionType().equals("AND") || request.getConditionType().equals("OR")) {
-            streamPilpelineObject2 = streamPipelineService.createStreamAndPipeline(request.getSecondStream(), alertTitle + "#2", userName, request.getStream().getMatchingType());
-            streamID2=streamPilpelineObject2.getStream().getId();
-        }
+            // Create Notificationœ
+            String notificationID = alertRuleUtilsService.createNotification(alertTitle, request.getSeverity());
 
-        // Create Notificationœ
-        String notificationID = alertRuleUtilsService.createNotification(alertTitle, request.getSeverity());
+            // Create Condition
+            EventProcessorConfig configuration =  alertRuleUtilsService.createCondition(request.getConditionType(), request.conditionParameters(), streamPilpelineObject.getStream().getId(), streamID2);
 
-        // Create Condition
-        EventProcessorConfig configuration =  alertRuleUtilsService.createCondition(request.getConditionType(), request.conditionParameters(), streamPilpelineObject.getStream().getId(), streamID2);
+            //Create Event
+            String eventID = alertRuleUtilsService.createEvent(alertTitle, notificationID, configuration);
 
-        //Create Event
-        String eventID = alertRuleUtilsService.createEvent(alertTitle, notificationID, configuration);
+            String eventID2 = null;
+            //Or Event for Second Stream
+            if( request.getConditionType().equals("OR") && streamPilpelineObject2.getStream() != null) {
+            	//Create Condition
+                EventProcessorConfig configuration2 = alertRuleUtilsService.createAggregationCondition(streamID2, request.conditionParameters());
+                //Create Event
+                eventID2 = alertRuleUtilsService.createEvent(alertTitle+"#2", notificationID, configuration2);
+            }
 
-        String eventID2 = null;
-        //Or Event for Second Stream
-        if( request.getConditionType().equals("OR") && streamPilpelineObject2.getStream() != null) {
-        	//Create Condition
-            EventProcessorConfig configuration2 = alertRuleUtilsService.createAggregationCondition(streamID2, request.conditionParameters());
-            //Create Event
-            eventID2 = alertRuleUtilsService.createEvent(alertTitle+"#2", notificationID, configuration2);
-        }
+            clusterEventBatch.streamChanged(streamPilpelineObject.getStream().getId());
+        	alertRuleService.create(AlertRuleImpl.create(
+            		alertTitle,
+                    streamPilpelineObject.getStream().getId(),
+                    eventID,
+                    notificationID,
+    				DateTime.now(),
+                    userName,
+    				DateTime.now(),
+    				request.getDescription(),
+    				request.getConditionType(),
+    				streamID2,
+                    eventID2,
+                    streamPilpelineObject.getPipelineID(),
+                    streamPilpelineObject.getPipelineRuleID(),
+                    streamPilpelineObject.getListPipelineFieldRule(),
+                    streamPilpelineObject2.getPipelineID(),
+                    streamPilpelineObject2.getPipelineRuleID(),
+                    streamPilpelineObject2.getListPipelineFieldRule()));
 
-        clusterEventBus.post(StreamsChangedEvent.create(streamPilpelineObject.getStream().getId()));
-    	alertRuleService.create(AlertRuleImpl.create(
-        		alertTitle,
-                streamPilpelineObject.getStream().getId(),
-                eventID,
-                notificationID,
-				DateTime.now(),
-                userName,
-				DateTime.now(),
-				request.getDescription(),
-				request.getConditionType(),
-				streamID2,
-                eventID2,
-                streamPilpelineObject.getPipelineID(),
-                streamPilpelineObject.getPipelineRuleID(),
-                streamPilpelineObject.getListPipelineFieldRule(),
-                streamPilpelineObject2.getPipelineID(),
-                streamPilpelineObject2.getPipelineRuleID(),
-                streamPilpelineObject2.getListPipelineFieldRule()));
+            //Update list usage
+            for (FieldRule fieldRule:alertRuleUtils.nullSafe(streamPilpelineObject.getListPipelineFieldRule())) {
+                alertListUtilsService.incrementUsage(fieldRule.getValue());
+            }
+            for (FieldRule fieldRule:alertRuleUtils.nullSafe(streamPilpelineObject2.getListPipelineFieldRule())) {
+                alertListUtilsService.incrementUsage(fieldRule.getValue());
+            }
+            alertRulesChanged(ImmutableSet.of(alertTitle));
 
-        //Update list usage
-        for (FieldRule fieldRule:alertRuleUtils.nullSafe(streamPilpelineObject.getListPipelineFieldRule())) {
-            alertListUtilsService.incrementUsage(fieldRule.getValue());
+            return Response.accepted().build();
+        } finally {
+            flush();
         }
-        for (FieldRule fieldRule:alertRuleUtils.nullSafe(streamPilpelineObject2.getListPipelineFieldRule())) {
-            alertListUtilsService.incrementUsage(fieldRule.getValue());
-        }
-        
-        return Response.accepted().build();
     }
 
     @PUT
@@ -369,97 +429,103 @@ public class AlertRuleResource extends RestResource implements PluginRestResourc
     					   @PathParam(TITLE) String title,
                            @ApiParam(name = "JSON body", required = true) @Valid @NotNull AlertRuleRequest request
                              ) throws UnsupportedEncodingException, NotFoundException, ValidationException {
+        try {
+            alertRuleUtilsService.checkIsValidRequest(request);
+
+        	AlertRule oldAlert = alertRuleService.load(title);
+            String alertTitle = request.getTitle();
+            String userName = getCurrentUser().getName();
+
+            // Update stream.
+            Stream stream = streamService.load(oldAlert.getStreamID());
+            stream = streamPipelineService.updateOrDetachStream(stream, request.getStream(), alertTitle, userName,
+                    oldAlert.getTitle(), this::sharedStreams);
+
+            //update pipeline
+            StreamPipelineObject streamPilpelineObject = streamPipelineService.updatePipeline(alertTitle, oldAlert.getPipelineID(), oldAlert.getPipelineRuleID(), request.getStream().getFieldRules(), stream, request.getStream().getMatchingType());
+
+            // Update stream 2.
+            Stream stream2 = streamPipelineService.createOrUpdateSecondStream(request.getSecondStream(), alertTitle, userName, request.getConditionType(), oldAlert,
+                    this::sharedStreams);
+            String streamID2 = null;
+
+            //update pipeline 2
+            StreamPipelineObject streamPilpelineObject2 = new StreamPipelineObject(null,null,null,null);
+            if(stream2 != null){
+                streamID2 = stream2.getId();
+                streamPilpelineObject2 = streamPipelineService.updatePipeline(alertTitle + "#2", oldAlert.getSecondPipelineID(), oldAlert.getSecondPipelineRuleID(), request.getSecondStream().getFieldRules(), stream2, request.getStream().getMatchingType());
+            } else if (oldAlert.getSecondStreamID() != null) {
+                streamPipelineService.deletePipeline(oldAlert.getSecondPipelineID(), oldAlert.getSecondPipelineRuleID());
+            }
 
-        alertRuleUtilsService.checkIsValidRequest(request);
-    	
-    	AlertRule oldAlert = alertRuleService.load(title);
-        String alertTitle = request.getTitle();
-        String userName = getCurrentUser().getName();
-
-        // Update stream.
-        final Stream stream = streamService.load(oldAlert.getStreamID());
-        streamPipelineService.updateStream(stream, request.getStream(), alertTitle);
-
-        //update pipeline
-        StreamPipelineObject streamPilpelineObject = streamPipelineService.updatePipeline(alertTitle, oldAlert.getPipelineID(), oldAlert.getPipelineRuleID(), request.getStream().getFieldRules(), stream, request.getStream().getMatchingType());
-
-        // Update stream 2.
-        Stream stream2 = streamPipelineService.createOrUpdateSecondStream(request.getSecondStream(), alertTitle, userName, request.getConditionType(), oldAlert);
-        String streamID2 = null;
-
-        //update pipeline 2
-        StreamPipelineObject streamPilpelineObject2 = new StreamPipelineObject(null,null,null,null);
-        if(stream2 != null){
-            streamID2 = stream2.getId();
-            streamPilpelineObject2 = streamPipelineService.updatePipeline(alertTitle + "#2", oldAlert.getSecondPipelineID(), oldAlert.getSecondPipelineRuleID(), request.getSecondStream().getFieldRules(), stream2, request.getStream().getMatchingType());
-        } else if (oldAlert.getSecondStreamID() != null) {
-            streamPipelineService.deletePipeline(oldAlert.getSecondPipelineID(), oldAlert.getSecondPipelineRuleID());
-        }
-
-        //update Notification
-        alertRuleUtilsService.updateNotification(alertTitle, oldAlert.getNotificationID(), request.getSeverity());
-
-        //Create Condition
-        EventProcessorConfig configuration =  alertRuleUtilsService.createCondition(request.getConditionType(), request.conditionParameters(), stream.getId(), streamID2);
+            //update Notification
+            alertRuleUtilsService.updateNotification(alertTitle, oldAlert.getNotificationID(), request.getSeverity());
 
-        // Update Event
-        alertRuleUtilsService.updateEvent(alertTitle, oldAlert.getEventID(), configuration);
+            //Create Condition
+            EventProcessorConfig configuration =  alertRuleUtilsService.createCondition(request.getConditionType(), request.conditionParameters(), stream.getId(), streamID2);
+
+            // Update Event
+            alertRuleUtilsService.updateEvent(alertTitle, oldAlert.getEventID(), configuration);
+
+            String eventID2 = oldAlert.getSecondEventID();
+            //Or Condition for Second Stream
+            if( request.getConditionType().equals("OR") && stream2 != null) {
+            	if(oldAlert.getConditionType().equals("OR")) {
+                    //Create Condition
+                    EventProcessorConfig configuration2 =  alertRuleUtilsService.createAggregationCondition(stream2.getId(), request.conditionParameters());
+                    // Update Event
+                    alertRuleUtilsService.updateEvent(alertTitle+"#2", eventID2, configuration2);
+            	}else {
+                    //Create Condition
+                    EventProcessorConfig configuration2 = alertRuleUtilsService.createAggregationCondition(stream2.getId(), request.conditionParameters());
+                    //Create Event
+                    eventID2 = alertRuleUtilsService.createEvent(alertTitle+"#2", oldAlert.getNotificationID(), configuration2);
+            	}
+            }else if(oldAlert.getConditionType().equals("OR")) {
+                //Delete Event
+                eventDefinitionsResource.delete(eventID2);
+            }
 
-        String eventID2 = oldAlert.getSecondEventID();
-        //Or Condition for Second Stream
-        if( request.getConditionType().equals("OR") && stream2 != null) {
-        	if(oldAlert.getConditionType().equals("OR")) {
-                //Create Condition
-                EventProcessorConfig configuration2 =  alertRuleUtilsService.createAggregationCondition(stream2.getId(), request.conditionParameters());
-                // Update Event
-                alertRuleUtilsService.updateEvent(alertTitle+"#2", eventID2, configuration2);
-        	}else {
-                //Create Condition
-                EventProcessorConfig configuration2 = alertRuleUtilsService.createAggregationCondition(stream2.getId(), request.conditionParameters());
-                //Create Event
-                eventID2 = alertRuleUtilsService.createEvent(alertTitle+"#2", oldAlert.getNotificationID(), configuration2);
-        	}
-        }else if(oldAlert.getConditionType().equals("OR")) {
-            //Delete Event
-            eventDefinitionsResource.delete(eventID2);
-        }
+            alertRuleService.update(java.net.URLDecoder.decode(title, ENCODING),
+                    AlertRuleImpl.create(
+                            alertTitle,
+                            stream.getId(),
+                            oldAlert.getEventID(),
+                            oldAlert.getNotificationID(),
+                            oldAlert.getCreatedAt(),
+                            userName,
+                            DateTime.now(),
+                            request.getDescription(),
+                            request.getConditionType(),
+                            streamID2,
+                            eventID2,
+                            streamPilpelineObject.getPipelineID(),
+                            streamPilpelineObject.getPipelineRuleID(),
+                            streamPilpelineObject.getListPipelineFieldRule(),
+                            streamPilpelineObject2.getPipelineID(),
+                            streamPilpelineObject2.getPipelineRuleID(),
+                            streamPilpelineObject2.getListPipelineFieldRule()));
+
+            //Decrement list usage
+            for (FieldRule fieldRule:alertRuleUtils.nullSafe(oldAlert.getPipelineFieldRules())) {
+                alertListUtilsService.decrementUsage(fieldRule.getValue());
+            }
+            for (FieldRule fieldRule:alertRuleUtils.nullSafe(oldAlert.getSecondPipelineFieldRules())) {
+                alertListUtilsService.decrementUsage(fieldRule.getValue());
+            }
+            //Increment list usage
+            for (FieldRule fieldRule:alertRuleUtils.nullSafe(streamPilpelineObject.getListPipelineFieldRule())) {
+                alertListUtilsService.incrementUsage(fieldRule.getValue());
+            }
+            for (FieldRule fieldRule:alertRuleUtils.nullSafe(streamPilpelineObject2.getListPipelineFieldRule())) {
+                alertListUtilsService.incrementUsage(fieldRule.getValue());
+            }
+            alertRulesChanged(ImmutableSet.of(title, alertTitle));
 
-        alertRuleService.update(java.net.URLDecoder.decode(title, ENCODING),
-                AlertRuleImpl.create(
-                        alertTitle,
-                        oldAlert.getStreamID(),
-                        oldAlert.getEventID(),
-                        oldAlert.getNotificationID(),
-                        oldAlert.getCreatedAt(),
-                        userName,
-                        DateTime.now(),
-                        request.getDescription(),
-                        request.getConditionType(),
-                        streamID2,
-                        eventID2,
-                        streamPilpelineObject.getPipelineID(),
-                        streamPilpelineObject.getPipelineRuleID(),
-                        streamPilpelineObject.getListPipelineFieldRule(),
-                        streamPilpelineObject2.getPipelineID(),
-                        streamPilpelineObject2.getPipelineRuleID(),
-                        streamPilpelineObject2.getListPipelineFieldRule()));
-
-        //Decrement list usage
-        for (FieldRule fieldRule:alertRuleUtils.nullSafe(oldAlert.getPipelineFieldRules())) {
-            alertListUtilsService.decrementUsage(fieldRule.getValue());
-        }
-        for (FieldRule fieldRule:alertRuleUtils.nullSafe(oldAlert.getSecondPipelineFieldRules())) {
-            alertListUtilsService.decrementUsage(fieldRule.getValue());
-        }
-        //Increment list usage
-        for (FieldRule fieldRule:alertRuleUtils.nullSafe(streamPilpelineObject.getListPipelineFieldRule())) {
-            alertListUtilsService.incrementUsage(fieldRule.getValue());
-        }
-        for (FieldRule fieldRule:alertRuleUtils.nullSafe(streamPilpelineObject2.getListPipelineFieldRule())) {
-            alertListUtilsService.incrementUsage(fieldRule.getValue());
+            return Response.accepted().build();
+        } finally {
+            flush();
         }
-
-        return Response.accepted().build();
     }
 
     @POST
@@ -474,100 +540,183 @@ public class AlertRuleResource extends RestResource implements PluginRestResourc
                            @PathParam(TITLE) String title,
                            @ApiParam(name = "JSON body", required = true) @Valid @NotNull CloneAlertRuleRequest request
     ) throws NotFoundException, ValidationException {
+        try {
+            AlertRule sourceAlert = alertRuleService.load(title);
+            String alertTitle = request.getTitle();
+            final String creatorUser = getCurrentUser().getName();
+
+            // Create stream.
+            final Stream sourceFirstStream = streamService.load(sourceAlert.getStreamID());
+            Stream firstStream = streamPipelineService.cloneOrShareStream(sourceFirstStream, sourceAlert.getPipelineFieldRules(), alertTitle, creatorUser);
+
+            //create pipeline
+            StreamPipelineObject streamPilpelineObject = streamPipelineService.createPipelineAndRule(firstStream, alertTitle,
+                    sourceAlert.getPipelineFieldRules(), sourceFirstStream.getMatchingType().toString());
+
+
+            Stream secondStream = null;
+            String secondStreamID = null;
+            StreamPipelineObject streamPilpelineObject2 = new StreamPipelineObject(null,null,null,null);
+
+            //Create Second Stream and pipeline
+            if(sourceAlert.getSecondStreamID() != null && !sourceAlert.getSecondStreamID().isEmpty()) {
+                final Stream sourceSecondStream = streamService.load(sourceAlert.getSecondStreamID());
+            	secondStream = streamPipelineService.cloneOrShareStream(sourceSecondStream, sourceAlert.getSecondPipelineFieldRules(), alertTitle+"#2", creatorUser);
+            	secondStreamID = secondStream.getId();
+                streamPilpelineObject2 = streamPipelineService.createPipelineAndRule(secondStream, alertTitle + "#2",
+                        sourceAlert.getSecondPipelineFieldRules(), sourceFirstStream.getMatchingType().toString());
+            }
 
-        AlertRule sourceAlert = alertRuleService.load(title);
-        String alertTitle = request.getTitle();
-        final String creatorUser = getCurrentUser().getName();
-
-        // Create stream.
-        final Stream sourceFirstStream = streamService.load(sourceAlert.getStreamID());
-        Stream firstStream = streamPipelineService.cloneStream(sourceFirstStream, alertTitle, creatorUser);
-
-        //create pipeline
-        String pipelineID = null;
-        String pipelineRuleID = null;
-        if(!sourceAlert.getPipelineFieldRules().isEmpty()) {
-            RuleDao pipelineRule = streamPipelineService.createPipelineRule(alertTitle, sourceAlert.getPipelineFieldRules(), firstStream, null);
-            PipelineDao pipeline = streamPipelineService.createPipeline(alertTitle, null, sourceFirstStream.getMatchingType().toString());
-            pipelineID = pipeline.id();
-            pipelineRuleID = pipelineRule.id();
-        }
+            if (!firstStream.getId().equals(sourceFirstStream.getId())) {
+                for (Output output : sourceFirstStream.getOutputs()) {
+                    streamService.addOutput(firstStream, output);
+                }
+                clusterEventBatch.streamChanged(firstStream.getId());
+            }
+
+            // Create Notification
+            LoggingNotificationConfig loggingNotificationConfig = (LoggingNotificationConfig) eventNotificationsResource.get(sourceAlert.getNotificationID()).config();
+            String notificationID = alertRuleUtilsService.createNotification(alertTitle, loggingNotificationConfig.severity().getType());
 
+            // Create Condition
+            EventProcessorConfig eventConfig = eventDefinitionsResource.get(sourceAlert.getEventID()).config();
+            Map<String, Object> parametersCondition = alertRuleUtils.getConditionParameters(eventConfig);
+            EventProcessorConfig configuration =  alertRuleUtilsService.createCondition(sourceAlert.getConditionType(), parametersCondition, firstStream.getId(), secondStreamID);
+
+            //Create Event
+            String eventID = alertRuleUtilsService.createEvent(alertTitle, notificationID, configuration);
 
-        Stream secondStream = null;
-        String secondStreamID = null;
-        String pipelineRuleID2 = null;
-        String pipelineID2 = null;
-
-        //Create Second Stream and pipeline
-        if(sourceAlert.getSecondStreamID() != null && !sourceAlert.getSecondStreamID().isEmpty()) {
-            final Stream sourceSecondStream = streamService.load(sourceAlert.getSecondStreamID());
-        	secondStream = streamPipelineService.cloneStream(sourceSecondStream, alertTitle+"#2", creatorUser);
-        	secondStreamID = secondStream.getId();
-            if(!sourceAlert.getSecondPipelineFieldRules().isEmpty()) {
-                RuleDao pipelineRule2 = streamPipelineService.createPipelineRule(alertTitle + "#2", sourceAlert.getSecondPipelineFieldRules(), secondStream, null);
-                PipelineDao pipeline2 = streamPipelineService.createPipeline(alertTitle + "#2", null, sourceFirstStream.getMatchingType().toString());
-                pipelineID2 = pipeline2.id();
-                pipelineRuleID2 = pipelineRule2.id();
+            String eventID2 = null;
+            //Or Event for Second Stream
+            if( sourceAlert.getConditionType().equals("OR") && secondStream != null) {
+                //Create Condition
+                EventProcessorConfig configuration2 = alertRuleUtilsService.createAggregationCondition(secondStreamID, parametersCondition);
+                //Create Event
+                eventID2 = alertRuleUtilsService.createEvent(alertTitle+"#2", notificationID, configuration2);
             }
-        }
 
-        for (Output output : sourceFirstStream.getOutputs()) {
-            streamService.addOutput(firstStream, output);
+            alertRuleService.create(AlertRuleImpl.create(
+            		alertTitle,
+            		firstStream.getId(),
+                    eventID,
+                    notificationID,
+    				DateTime.now(),
+                    creatorUser,
+    				DateTime.now(),
+    				request.getDescription(),
+    				sourceAlert.getConditionType(),
+    				secondStreamID,
+                    eventID2,
+                    streamPilpelineObject.getPipelineID(),
+                    streamPilpelineObject.getPipelineRuleID(),
+                    sourceAlert.getPipelineFieldRules(),
+                    streamPilpelineObject2.getPipelineID(),
+                    streamPilpelineObject2.getPipelineRuleID(),
+                    sourceAlert.getSecondPipelineFieldRules()));
+
+            //Update list usage
+            for (FieldRule fieldRule:alertRuleUtils.nullSafe(sourceAlert.getPipelineFieldRules())) {
+                alertListUtilsService.incrementUsage(fieldRule.getValue());
+            }
+            for (FieldRule fieldRule:alertRuleUtils.nullSafe(sourceAlert.getSecondPipelineFieldRules())) {
+                alertListUtilsService.incrementUsage(fieldRule.getValue());
+            }
+            alertRulesChanged(ImmutableSet.of(alertTitle));
+
+            return Response.accepted().build();
+        } finally {
+            flush();
         }
-        clusterEventBus.post(StreamsChangedEvent.create(firstStream.getId()));
+    }
 
-        // Create Notification
-        LoggingNotificationConfig loggingNotificationConfig = (LoggingNotificationConfig) eventNotificationsResource.get(sourceAlert.getNotificationID()).config();
-        String notificationID = alertRuleUtilsService.createNotification(alertTitle, loggingNotificationConfig.severity().getType());
+    @POST
+    @Path("/{title}/pause")
+    @Timed
+    @RequiresAuthentication
+    @RequiresPermissions(AlertRuleRestPermissions.WIZARD_ALERTS_RULES_UPDATE)
+    @ApiOperation(value = "Pause a alert")
+    @ApiResponses(value = {@ApiResponse(code = 404, message = "Alert not found.")})
+    @AuditEvent(type = AlertWizardAuditEventTypes.WIZARD_ALERTS_RULES_UPDATE)
+    public Response pause(@ApiParam(name = TITLE, required = true)
+                          @PathParam(TITLE) String title
+    ) throws UnsupportedEncodingException, NotFoundException, ValidationException {
+        try {
+            String alertTitle = java.net.URLDecoder.decode(title, ENCODING);
+            AlertRule alertRule = alertRuleService.load(alertTitle);
+            String userName = getCurrentUser().getName();
+
+            // Pause the streams, the ones shared with other alert rules are replaced by paused copies
+            Stream stream = streamPipelineService.pauseOrDetachStream(streamService.load(alertRule.getStreamID()),
+                    alertTitle, userName, alertTitle);
+            String streamID2 = alertRule.getSecondStreamID();
+            if (streamID2 != null && !streamID2.isEmpty()) {
+                streamID2 = streamPipelineService.pauseOrDetachStream(streamService.load(streamID2),
+                        alertTitle + "#2", userName, alertTitle).getId();
+            }
 
-        // Create Condition
-        EventProcessorConfig eventConfig = eventDefinitionsResource.get(sourceAlert.getEventID()).config();
-        Map<String, Object> parametersCondition = alertRuleUtils.getConditionParameters(eventConfig);
-        EventProcessorConfig configuration =  alertRuleUtilsService.createCondition(sourceAlert.getConditionType(), parametersCondition, firstStream.getId(), secondStreamID);
+            if (!stream.getId().equals(alertRule.getStreamID()) || !Objects.equals(streamID2, alertRule.getSecondStreamID())) {
+                // Point the conditions to the detached streams
+                EventProcessorConfig eventConfig = eventDefinitionsResource.get(alertRule.getEventID()).config();
+                Map<String, Object> parametersCondition = alertRuleUtils.getConditionParameters(eventConfig);
+                EventProcessorConfig configuration = alertRuleUtilsService.createCondition(alertRule.getConditionType(), parametersCondition, stream.getId(), streamID2);
+                alertRuleUtilsService.updateEvent(alertTitle, alertRule.getEventID(), configuration);
+                if (alertRule.getConditionType().equals("OR") && alertRule.getSecondEventID() != null) {
+                    EventProcessorConfig configuration2 = alertRuleUtilsService.createAggregationCondition(streamID2, parametersCondition);
+                    alertRuleUtilsService.updateEvent(alertTitle + "#2", alertRule.getSecondEventID(), configuration2);
+                }
 
-        //Create Event
-        String eventID = alertRuleUtilsService.createEvent(alertTitle, notificationID, configuration);
+                alertRuleService.update(alertTitle,
+                        AlertRuleImpl.create(
+                                alertTitle,
+                                stream.getId(),
+                                alertRule.getEventID(),
+                                alertRule.getNotificationID(),
+                                alertRule.getCreatedAt(),
+                                alertRule.getCreatorUserId(),
+                                DateTime.now(),
+                                alertRule.getDescription(),
+                                alertRule.getConditionType(),
+                                streamID2,
+                                alertRule.getSecondEventID(),
+                                alertRule.getPipelineID(),
+                                alertRule.getPipelineRuleID(),
+                                alertRule.getPipelineFieldRules(),
+                                alertRule.getSecondPipelineID(),
+                                alertRule.getSecondPipelineRuleID(),
+                                alertRule.getSecondPipelineFieldRules()));
+                alertRulesChanged(ImmutableSet.of(alertTitle));
+            }
 
-        String eventID2 = null;
-        //Or Event for Second Stream
-        if( sourceAlert.getConditionType().equals("OR") && secondStream != null) {
-            //Create Condition
-            EventProcessorConfig configuration2 = alertRuleUtilsService.createAggregationCondition(secondStreamID, parametersCondition);
-            //Create Event
-            eventID2 = alertRuleUtilsService.createEvent(alertTitle+"#2", notificationID, configuration2);
+            return Response.accepted().build();
+        } finally {
+            flush();
         }
+    }
 
-        alertRuleService.create(AlertRuleImpl.create(
-        		alertTitle,
-        		firstStream.getId(),
-                eventID,
-                notificationID,
-				DateTime.now(),
-                creatorUser,
-				DateTime.now(),
-				request.getDescription(),
-				sourceAlert.getConditionType(),
-				secondStreamID,
-                eventID2,
-                pipelineID,
-                pipelineRuleID,
-                sourceAlert.getPipelineFieldRules(),
-                pipelineID2,
-                pipelineRuleID2,
-                sourceAlert.getSecondPipelineFieldRules()));
+    @POST
+    @Path("/{title}/resume")
+    @Timed
+    @RequiresAuthentication
+    @RequiresPermissions(AlertRuleRestPermissions.WIZARD_ALERTS_RULES_UPDATE)
+    @ApiOperation(value = "Resume a alert")
+    @ApiResponses(value = {@ApiResponse(code = 404, message = "Alert not found.")})
+    @AuditEvent(type = AlertWizardAuditEventTypes.WIZARD_ALERTS_RULES_UPDATE)
+    public Response resume(@ApiParam(name = TITLE, required = true)
+                           @PathParam(TITLE) String title
+    ) throws UnsupportedEncodingException, NotFoundException, ValidationException {
+        try {
+            AlertRule alertRule = alertRuleService.load(java.net.URLDecoder.decode(title, ENCODING));
+            streamPipelineService.resumeStream(streamService.load(alertRule.getStreamID()));
+            if (alertRule.getSecondStreamID() != null && !alertRule.getSecondStreamID().isEmpty()) {
+                streamPipelineService.resumeStream(streamService.load(alertRule.getSecondStreamID()));
+            }
 
-        //Update list usage
-        for (FieldRule fieldRule:alertRuleUtils.nullSafe(sourceAlert.getPipelineFieldRules())) {
-            alertListUtilsService.incrementUsage(fieldRule.getValue());
-        }
-        for (FieldRule fieldRule:alertRuleUtils.nullSafe(sourceAlert.getSecondPipelineFieldRules())) {
-            alertListUtilsService.incrementUsage(fieldRule.getValue());
+            return Response.accepted().build();
+        } finally {
+            flush();
         }
-
-        return Response.accepted().build();
     }
-    
+
     @DELETE
     @Path("/{title}")
     @RequiresAuthentication
@@ -582,16 +731,31 @@ public class AlertRuleResource extends RestResource implements PluginRestResourc
                               @PathParam(TITLE) String title
                               ) throws MongoException, UnsupportedEncodingException {
         String alertTitle = java.net.URLDecoder.decode(title, ENCODING);
+        try {
+            deleteAlertRule(alertTitle);
+            alertRulesChanged(ImmutableSet.of(alertTitle));
+        } finally {
+            flush();
+        }
+    }
 
+    /**
+     * Deletes an alert rule and what was created for it, without sending the cluster events.
+     */
+    private void deleteAlertRule(String alertTitle) throws UnsupportedEncodingException {
         try{
         	AlertRule alertRule = alertRuleService.load(alertTitle);
-        	//Delete first Stream
-            if(alertRule.getStreamID() != null && !alertRule.getStreamID().isEmpty()) {
+            // Removed before looking for other alert rules using its streams: when two alert rules sharing a stream
+            // are deleted concurrently, at least one of them sees the other one gone and deletes the stream
+            destroyAlertRule(alertTitle);
+
+        	//Delete first Stream, unless other alert rules still share it
+            if(alertRule.getStreamID() != null && !alertRule.getStreamID().isEmpty() && !alertRuleService.isStreamUsedByOthers(alertRule.getStreamID(), alertTitle)) {
                 streamPipelineService.deleteStreamFromID(alertRule.getStreamID());
             }
 
             //Delete second Stream
-            if(alertRule.getSecondStreamID() != null && !alertRule.getSecondStreamID().isEmpty()) {
+            if(alertRule.getSecondStreamID() != null && !alertRule.getSecondStreamID().isEmpty() && !alertRuleService.isStreamUsedByOthers(alertRule.getSecondStreamID(), alertTitle)) {
                 streamPipelineService.deleteStreamFromID(alertRule.getSecondStreamID());
             }
 
@@ -607,11 +771,11 @@ public class AlertRuleResource extends RestResource implements PluginRestResourc
             }
 
             //Delete Pipeline
-            if (alertRule.getPipelineID() != null && alertRule.getPipelineRuleID() != null) {
+            if (alertRule.getPipelineID() != null || alertRule.getPipelineRuleID() != null) {
                 streamPipelineService.deletePipeline(alertRule.getPipelineID(), alertRule.getPipelineRuleID());
             }
 
-            if (alertRule.getSecondPipelineID() != null && alertRule.getSecondPipelineRuleID() != null) {
+            if (alertRule.getSecondPipelineID() != null || alertRule.getSecondPipelineRuleID() != null) {
                 streamPipelineService.deletePipeline(alertRule.getSecondPipelineID(), alertRule.getSecondPipelineRuleID());
             }
 
@@ -624,9 +788,15 @@ public class AlertRuleResource extends RestResource implements PluginRestResourc
             }
         }catch(NotFoundException e){
             LOG.error("Cannot find alert " + alertTitle , e);
+            destroyAlertRule(alertTitle);
         }
-        
+    }
+
+    private void destroyAlertRule(String alertTitle) throws UnsupportedEncodingException {
         alertRuleService.destroy(alertTitle);
+        if (sharedStreams != null) {
+            sharedStreams.unregister(alertTitle);
+        }
     }
     
     @POST
@@ -642,17 +812,17 @@ public class AlertRuleResource extends RestResource implements PluginRestResourc
     }
 
 
-    public void importAlertRule(ExportAlertRule alertRule) throws ValidationException {
+    public String importAlertRule(ExportAlertRule alertRule) throws ValidationException, NotFoundException {
         String alertTitle = checkImportPolicyAndGetTitle(alertRule.getTitle());
         String userName = getCurrentUser().getName();
 
         LOG.debug("User: "+userName+" try to import alert rule: "+ alertTitle);
 
         // Create stream and pipeline
-        StreamPipelineObject streamPilpelineObject = streamPipelineService.createStreamAndPipeline(alertRule.getStream(), alertTitle, userName, alertRule.getStream().getMatchingType());
+        StreamPipelineObject streamPilpelineObject = streamPipelineService.createStreamAndPipeline(alertRule.getStream(), alertTitle, userName, alertRule.getStream().getMatchingType(), this::sharedStreams);
 
         //Create unique data adapter
-        DataAdapterDto adapter = streamPipelineService.createUniqueDataAdapter(userName);
+        DataAdapterDto adapter = streamPipelineService.createUniqueDataAdapter();
         CacheDto cache = streamPipelineService.createUniqueCache();
         streamPipelineService.createUniqueLookup(cache, adapter);
 
@@ -660,7 +830,7 @@ public class AlertRuleResource extends RestResource implements PluginRestResourc
         String streamID2 = null;
         StreamPipelineObject streamPilpelineObject2 = new StreamPipelineObject(null,null,null,null);
         if(alertRule.getConditionType().equals("THEN") || alertRule.getConditionType().equals("AND") || alertRule.getConditionType().equals("OR")) {
-            streamPilpelineObject2 = streamPipelineService.createStreamAndPipeline(alertRule.getSecondStream(), alertTitle+"#2", userName, alertRule.getStream().getMatchingType());
+            streamPilpelineObject2 = streamPipelineService.createStreamAndPipeline(alertRule.getSecondStream(), alertTitle+"#2", userName, alertRule.getStream().getMatchingType(), this::sharedStreams);
             streamID2 = streamPilpelineObject2.getStream().getId();
         }
 
@@ -682,7 +852,7 @@ public class AlertRuleResource extends RestResource implements PluginRestResourc
             eventID2 = alertRuleUtilsService.createEvent(alertTitle+"#2", notificationID, configuration2);
         }
 
-        clusterEventBus.post(StreamsChangedEvent.create(streamPilpelineObject.getStream().getId()));
+        clusterEventBatch.streamChanged(streamPilpelineObject.getStream().getId());
         alertRuleService.create(AlertRuleImpl.create(
                 alertTitle,
                 streamPilpelineObject.getStream().getId(),
@@ -702,6 +872,9 @@ public class AlertRuleResource extends RestResource implements PluginRestResourc
                 streamPilpelineObject2.getPipelineRuleID(),
                 streamPilpelineObject2.getListPipelineFieldRule()));
 
+        // The next imported alert rules may share these streams
+        registerStreams(alertTitle, streamPilpelineObject, streamPilpelineObject2);
+
         //Update list usage
         for (FieldRule fieldRule:alertRuleUtils.nullSafe(streamPilpelineObject.getListPipelineFieldRule())) {
             alertListUtilsService.incrementUsage(fieldRule.getValue());
@@ -710,6 +883,7 @@ public class AlertRuleResource extends RestResource implements PluginRestResourc
             alertListUtilsService.incrementUsage(fieldRule.getValue());
         }
         LOG.debug("User: "+userName+" successfully import alert rule: "+ alertTitle);
+        return alertTitle;
     }
 
     @PUT
@@ -721,21 +895,27 @@ public class AlertRuleResource extends RestResource implements PluginRestResourc
     @ApiResponses(value = {@ApiResponse(code = 400, message = "The supplied request is not valid.")})
     @AuditEvent(type = AlertWizardAuditEventTypes.WIZARD_ALERTS_RULES_CREATE)
     public Response importAlertRules (@ApiParam(name = "JSON body", required = true) @Valid @NotNull List<ExportAlertRule> request) {
-    	Response responses = Response.accepted().build();
-    			
-    	for (ExportAlertRule alertRule : request) {
-            if(!alertRuleService.isValidImportRequest(alertRule)){
-                LOG.error("Invalid alert rule:" + alertRule.getTitle() );
-            }else {
-				try {
-                    importAlertRule(alertRule);
-				} catch (Exception e) {
-					LOG.error("Cannot create alert "+ alertRule.getTitle() + ": ", e.getMessage());
-					responses = Response.serverError().build();
-				}
-            }
-		}
-    	
-		return responses;
+        try {
+        	Response responses = Response.accepted().build();
+            Set<String> importedTitles = new HashSet<>();
+
+        	for (ExportAlertRule alertRule : request) {
+                if(!alertRuleService.isValidImportRequest(alertRule)){
+                    LOG.error("Invalid alert rule:" + alertRule.getTitle() );
+                }else {
+    				try {
+                        importedTitles.add(importAlertRule(alertRule));
+    				} catch (Exception e) {
+    					LOG.error("Cannot create alert "+ alertRule.getTitle() + ": ", e.getMessage());
+    					responses = Response.serverError().build();
+    				}
+                }
+    		}
+            alertRulesChanged(importedTitles);
+
+    		return responses;
+        } finally {
+            flush();
+        }
     }
 }
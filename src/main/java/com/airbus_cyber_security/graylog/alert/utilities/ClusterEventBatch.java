@@ -0,0 +1,80 @@
+/*
+ * graylog-plugin-alert-wizard Source Code
+ * Copyright (C) 2018-2020 - Airbus CyberSecurity (SAS) - All rights reserved
+ *
+ * This file is part of the graylog-plugin-alert-wizard GPL Source Code.
+ *
+ * graylog-plugin-alert-wizard Source Code is free software:
+ * you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * This code is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this code.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.airbus_cyber_security.graylog.alert.utilities;
+
+import com.airbus_cyber_security.graylog.alert.events.AlertRulesChangedEvent;
+import com.google.common.collect.ImmutableSet;
+import org.graylog2.events.ClusterEventBus;
+import org.graylog2.streams.events.StreamDeletedEvent;
+import org.graylog2.streams.events.StreamsChangedEvent;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cluster events of an alert operation, collected while it runs and coalesced by {@link #flush()} at its end:
+ * all the changed streams are sent in a single {@link StreamsChangedEvent} and all the changed alert rules in a
+ * single {@link AlertRulesChangedEvent}, so that a bulk import costs one rebuild instead of one per alert rule.
+ */
+public class ClusterEventBatch {
+
+    private final ClusterEventBus clusterEventBus;
+    private final Set<String> changedStreams = ConcurrentHashMap.newKeySet();
+    private final Set<String> deletedStreams = ConcurrentHashMap.newKeySet();
+    private final Set<String> changedAlertRules = ConcurrentHashMap.newKeySet();
+
+    public ClusterEventBatch(ClusterEventBus clusterEventBus) {
+        this.clusterEventBus = clusterEventBus;
+    }
+
+    public void streamChanged(String streamID) {
+        changedStreams.add(streamID);
+    }
+
+    public void streamDeleted(String streamID) {
+        changedStreams.add(streamID);
+        deletedStreams.add(streamID);
+    }
+
+    public void alertRulesChanged(Set<String> titles) {
+        changedAlertRules.addAll(titles);
+    }
+
+    public void flush() {
+        final ImmutableSet<String> streams = drain(changedStreams);
+        if (!streams.isEmpty()) {
+            clusterEventBus.post(StreamsChangedEvent.create(streams));
+        }
+        for (String streamID : drain(deletedStreams)) {
+            clusterEventBus.post(StreamDeletedEvent.create(streamID));
+        }
+        final ImmutableSet<String> alertRules = drain(changedAlertRules);
+        if (!alertRules.isEmpty()) {
+            clusterEventBus.post(AlertRulesChangedEvent.create(alertRules));
+        }
+    }
+
+    private static ImmutableSet<String> drain(Set<String> values) {
+        final ImmutableSet<String> drained = ImmutableSet.copyOf(values);
+        values.removeAll(drained);
+        return drained;
+    }
+}
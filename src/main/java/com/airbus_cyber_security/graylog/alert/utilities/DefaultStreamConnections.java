@@ -0,0 +1,96 @@
+/*
+ * graylog-plugin-alert-wizard Source Code
+ * Copyright (C) 2018-2020 - Airbus CyberSecurity (SAS) - All rights reserved
+ *
+ * This file is part of the graylog-plugin-alert-wizard GPL Source Code.
+ *
+ * graylog-plugin-alert-wizard Source Code is free software:
+ * you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * This code is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this code.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.airbus_cyber_security.graylog.alert.utilities;
+
+import com.google.common.collect.ImmutableList;
+import org.graylog.plugins.pipelineprocessor.events.PipelineConnectionsChangedEvent;
+import org.graylog.plugins.pipelineprocessor.rest.PipelineConnections;
+import org.graylog2.bindings.providers.MongoJackObjectMapperProvider;
+import org.graylog2.database.MongoConnection;
+import org.graylog2.events.ClusterEventBus;
+import org.mongojack.DBQuery;
+import org.mongojack.DBUpdate;
+import org.mongojack.JacksonDBCollection;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Connections of the wizard pipelines to the default stream.
+ * Connected and disconnected pipelines are collected during an operation and applied by {@link #flush()}
+ * with atomic $addToSet/$pull updates, followed by a single connections changed event, so that the
+ * pipeline interpreter is reloaded once per operation and concurrent operations do not lose updates.
+ */
+public class DefaultStreamConnections {
+
+    public static final String DEFAULT_STREAM_ID = "000000000000000000000001";
+    private static final String COLLECTION_NAME = "pipeline_processor_pipelines_streams";
+    private static final String FIELD_STREAM_ID = "stream_id";
+    private static final String FIELD_PIPELINE_IDS = "pipeline_ids";
+
+    private final JacksonDBCollection<PipelineConnections, String> collection;
+    private final ClusterEventBus clusterEventBus;
+    private final Set<String> connected = ConcurrentHashMap.newKeySet();
+    private final Set<String> disconnected = ConcurrentHashMap.newKeySet();
+
+    public DefaultStreamConnections(MongoConnection mongoConnection, MongoJackObjectMapperProvider mapperProvider,
+                                    ClusterEventBus clusterEventBus) {
+        this.collection = JacksonDBCollection.wrap(mongoConnection.getDatabase().getCollection(COLLECTION_NAME),
+                PipelineConnections.class, String.class, mapperProvider.get());
+        this.clusterEventBus = clusterEventBus;
+    }
+
+    public void connect(String pipelineID) {
+        disconnected.remove(pipelineID);
+        connected.add(pipelineID);
+    }
+
+    public void disconnect(String pipelineID) {
+        connected.remove(pipelineID);
+        disconnected.add(pipelineID);
+    }
+
+    public void flush() {
+        final List<String> toConnect = drain(connected);
+        final List<String> toDisconnect = drain(disconnected);
+        final DBQuery.Query query = DBQuery.is(FIELD_STREAM_ID, DEFAULT_STREAM_ID);
+
+        PipelineConnections connections = null;
+        if (!toConnect.isEmpty()) {
+            connections = collection.findAndModify(query, null, null, false,
+                    DBUpdate.addToSet(FIELD_PIPELINE_IDS, toConnect), true, true);
+        }
+        if (!toDisconnect.isEmpty()) {
+            connections = collection.findAndModify(query, null, null, false,
+                    DBUpdate.pullAll(FIELD_PIPELINE_IDS, toDisconnect), true, false);
+        }
+        if (connections != null) {
+            clusterEventBus.post(PipelineConnectionsChangedEvent.create(DEFAULT_STREAM_ID, connections.pipelineIds()));
+        }
+    }
+
+    private static List<String> drain(Set<String> pipelineIDs) {
+        final List<String> drained = ImmutableList.copyOf(pipelineIDs);
+        pipelineIDs.removeAll(drained);
+        return drained;
+    }
+}
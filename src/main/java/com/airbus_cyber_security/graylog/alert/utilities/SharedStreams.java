@@ -0,0 +1,95 @@
+/*
+ * graylog-plugin-alert-wizard Source Code
+ * Copyright (C) 2018-2020 - Airbus CyberSecurity (SAS) - All rights reserved
+ *
+ * This file is part of the graylog-plugin-alert-wizard GPL Source Code.
+ *
+ * graylog-plugin-alert-wizard Source Code is free software:
+ * you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * This code is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this code.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.airbus_cyber_security.graylog.alert.utilities;
+
+import com.airbus_cyber_security.graylog.alert.FieldRuleImpl;
+import org.graylog2.plugin.streams.Stream;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Streams of the alert rules indexed by their routing, loaded once per request so that looking for a stream to share
+ * does not read all the alert rules and their streams again. Streams targeted by list rules are never shared,
+ * as their pipeline rule routes messages to them, nor paused streams.
+ * Alert rules created or deleted during the request are registered or unregistered, as when importing several ones.
+ */
+public class SharedStreams {
+
+    private final Map<String, Stream> streams = new HashMap<>();
+    private final Map<String, Set<String>> sharableTitlesByStream = new HashMap<>();
+    private final Map<String, Set<String>> streamsByRouting = new HashMap<>();
+
+    public void register(String title, Stream stream, List<FieldRuleImpl> pipelineFieldRules) {
+        if (stream == null) {
+            return;
+        }
+        final String streamID = stream.getId();
+        if (streams.put(streamID, stream) == null) {
+            streamsByRouting.computeIfAbsent(StreamPipelineService.routingKey(stream.getStreamRules()), key -> new HashSet<>())
+                    .add(streamID);
+        }
+        if (pipelineFieldRules == null || pipelineFieldRules.isEmpty()) {
+            sharableTitlesByStream.computeIfAbsent(streamID, key -> new HashSet<>()).add(title);
+        }
+    }
+
+    public void unregister(String title) {
+        for (Set<String> titles : sharableTitlesByStream.values()) {
+            titles.remove(title);
+        }
+    }
+
+    /**
+     * @return a stream of another alert rule than the given one routing messages as requested, or null if there is none
+     */
+    Stream find(String matchingType, List<FieldRuleImpl> streamFieldRules, String title) {
+        final Set<String> streamIDs = streamsByRouting.get(StreamPipelineService.routingKey(streamFieldRules));
+        if (streamIDs == null) {
+            return null;
+        }
+        for (String streamID : streamIDs) {
+            final Stream stream = streams.get(streamID);
+            if (!Boolean.TRUE.equals(stream.getDisabled())
+                    && (matchingType == null || matchingType.equals(stream.getMatchingType().toString()))
+                    && hasOtherTitles(sharableTitlesByStream.get(streamID), title)) {
+                return stream;
+            }
+        }
+        return null;
+    }
+
+    private static boolean hasOtherTitles(Collection<String> titles, String title) {
+        if (titles == null) {
+            return false;
+        }
+        for (String other : titles) {
+            if (!other.equals(title)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -21,26 +21,37 @@
 package com.airbus_cyber_security.graylog.alert.utilities;
 
 import com.airbus_cyber_security.graylog.alert.*;
+import com.airbus_cyber_security.graylog.config.rest.AlertWizardConfig;
+import com.airbus_cyber_security.graylog.config.rest.ListRulesModeType;
+import com.airbus_cyber_security.graylog.list.functions.InWizardList;
+import com.airbus_cyber_security.graylog.list.lookup.AlertListDataAdapter;
+import com.airbus_cyber_security.graylog.list.lookup.AlertListLookupCache;
 import com.google.common.collect.Maps;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.bson.types.ObjectId;
 import org.graylog.plugins.pipelineprocessor.db.*;
-import org.graylog.plugins.pipelineprocessor.rest.PipelineConnections;
-import org.graylog2.configuration.HttpConfiguration;
+import org.graylog2.database.CollectionName;
+import org.graylog2.database.MongoConnection;
 import org.graylog2.database.NotFoundException;
 import org.graylog2.events.ClusterEventBus;
 import org.graylog2.lookup.LookupDefaultMultiValue;
 import org.graylog2.lookup.LookupDefaultSingleValue;
-import org.graylog2.lookup.adapters.HTTPJSONPathDataAdapter;
-import org.graylog2.lookup.caches.NullCache;
 import org.graylog2.lookup.db.DBCacheService;
 import org.graylog2.lookup.db.DBDataAdapterService;
 import org.graylog2.lookup.db.DBLookupTableService;
 import org.graylog2.lookup.dto.CacheDto;
 import org.graylog2.lookup.dto.DataAdapterDto;
 import org.graylog2.lookup.dto.LookupTableDto;
+import org.graylog2.lookup.events.CachesUpdated;
+import org.graylog2.lookup.events.DataAdaptersUpdated;
 import org.graylog2.plugin.Tools;
+import org.graylog2.plugin.cluster.ClusterConfigService;
 import org.graylog2.plugin.database.ValidationException;
+import org.graylog2.plugin.database.validators.ValidationResult;
+import org.graylog2.plugin.streams.Output;
 import org.graylog2.plugin.streams.Stream;
 import org.graylog2.plugin.streams.StreamRule;
 import org.graylog2.rest.resources.streams.requests.CreateStreamRequest;
@@ -48,8 +59,6 @@ import org.graylog2.streams.StreamImpl;
 import org.graylog2.streams.StreamRuleImpl;
 import org.graylog2.streams.StreamRuleService;
 import org.graylog2.streams.StreamService;
-import org.graylog2.streams.events.StreamDeletedEvent;
-import org.graylog2.streams.events.StreamsChangedEvent;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
 import org.slf4j.Logger;
@@ -57,50 +66,67 @@ import org.slf4j.LoggerFactory;
 
 import javax.ws.rs.BadRequestException;
 import java.util.*;
+import java.util.function.Supplier;
 
 public class StreamPipelineService {
 
     private static final Logger LOG = LoggerFactory.getLogger(StreamPipelineService.class);
     private static final String RANDOM_CHARS = "0123456789abcdef";
     private static final int RANDOM_COUNT = 24;
+    private static final String SHARED_PIPELINE_TITLE = "Wizard alert rules";
+    private static final String SHARED_PIPELINE_ID = "000000000000000000000a1e";
+    private static final int SHARED_PIPELINE_ATTEMPTS = 3;
+    // Serializes the regenerations of the shared pipeline on this node, the services are created per request
+    private static final Object SHARED_PIPELINE_LOCK = new Object();
 
     private final StreamService streamService;
     private final StreamRuleService streamRuleService;
     private final ClusterEventBus clusterEventBus;
+    private final ClusterEventBatch clusterEventBatch;
     private final String indexSetID;
     private final RuleService ruleService;
     private final PipelineService pipelineService;
     private final DBDataAdapterService dbDataAdapterService;
-    private final HttpConfiguration httpConfiguration;
     private final DBCacheService dbCacheService;
     private final DBLookupTableService dbTableService;
-    private final PipelineStreamConnectionsService pipelineStreamConnectionsService;
+    private final DefaultStreamConnections defaultStreamConnections;
+    private final DBCollection streamRuleCollection;
+    private final ClusterConfigService clusterConfigService;
+    private final AlertRuleService alertRuleService;
 
     public StreamPipelineService(StreamService streamService,
                                  StreamRuleService streamRuleService,
                                  ClusterEventBus clusterEventBus,
+                                 ClusterEventBatch clusterEventBatch,
                                  String indexSetID,
                                  RuleService ruleService,
                                  PipelineService pipelineService,
                                  DBDataAdapterService dbDataAdapterService,
-                                 HttpConfiguration httpConfiguration,
                                  DBCacheService dbCacheService,
                                  DBLookupTableService dbTableService,
-                                 PipelineStreamConnectionsService pipelineStreamConnectionsService){
+                                 DefaultStreamConnections defaultStreamConnections,
+                                 MongoConnection mongoConnection,
+                                 ClusterConfigService clusterConfigService,
+                                 AlertRuleService alertRuleService){
         this.streamService = streamService;
         this.streamRuleService = streamRuleService;
         this.clusterEventBus = clusterEventBus;
+        this.clusterEventBatch = clusterEventBatch;
         this.indexSetID = indexSetID;
         this.ruleService = ruleService;
         this.pipelineService = pipelineService;
         this.dbDataAdapterService = dbDataAdapterService;
-        this.httpConfiguration = httpConfiguration;
         this.dbCacheService = dbCacheService;
         this.dbTableService = dbTableService;
-        this.pipelineStreamConnectionsService = pipelineStreamConnectionsService;
+        this.defaultStreamConnections = defaultStreamConnections;
+        final String streamRuleCollectionName = StreamRuleImpl.class.getAnnotation(CollectionName.class).value();
+        this.streamRuleCollection = mongoConnection.getDatabase().getCollection(streamRuleCollectionName);
+        this.clusterConfigService = clusterConfigService;
+        this.alertRuleService = alertRuleService;
     }
 
     public void createStreamRule(List<FieldRuleImpl> listfieldRule, String streamID) throws ValidationException {
+        final List<Map<String, Object>> streamRules = new ArrayList<>(listfieldRule.size());
         for (FieldRule fieldRule:listfieldRule) {
             if (fieldRule.getType() != -7 && fieldRule.getType() != 7) {
                 final Map<String, Object> streamRuleData = Maps.newHashMapWithExpectedSize(6);
@@ -117,15 +143,37 @@ public class StreamPipelineService {
                 streamRuleData.put(StreamRuleImpl.FIELD_STREAM_ID, new ObjectId(streamID));
                 streamRuleData.put(StreamRuleImpl.FIELD_DESCRIPTION, AlertRuleUtils.COMMENT_ALERT_WIZARD);
 
-                final StreamRule newStreamRule = streamRuleService.create(streamRuleData);
-                streamRuleService.save(newStreamRule);
+                streamRules.add(streamRuleData);
             }
         }
+        insertStreamRules(streamRules);
+    }
+
+    /**
+     * Inserts the stream rules of a stream with a single bulk write, instead of one save per rule.
+     * Each rule is validated as {@link StreamRuleService#save} would do before anything is written.
+     */
+    private void insertStreamRules(List<Map<String, Object>> streamRules) throws ValidationException {
+        if (streamRules.isEmpty()) {
+            return;
+        }
+        final List<DBObject> documents = new ArrayList<>(streamRules.size());
+        for (Map<String, Object> streamRuleData : streamRules) {
+            final StreamRule streamRule = streamRuleService.create(streamRuleData);
+            final Map<String, List<ValidationResult>> errors = streamRuleService.validate(streamRule);
+            if (!errors.isEmpty()) {
+                throw new ValidationException(errors);
+            }
+            final BasicDBObject document = new BasicDBObject(streamRule.getFields());
+            document.put("_id", new ObjectId(streamRule.getId()));
+            documents.add(document);
+        }
+        streamRuleCollection.insert(documents);
     }
 
     public String createStringField(FieldRule fieldRule, String condition) {
-        return "  (has_field(\"" + fieldRule.getField() + "\")" + condition + "contains(to_string(lookup_value(\"wizard_lookup\", \"" +
-                fieldRule.getValue() + "\", \"\")), to_string($message." + fieldRule.getField() + "), true))\n";
+        return "  (has_field(\"" + fieldRule.getField() + "\")" + condition + InWizardList.NAME + "(\"" +
+                fieldRule.getValue() + "\", $message." + fieldRule.getField() + "))\n";
     }
 
     public String createRuleSource(String alertTitle, List<FieldRuleImpl> listfieldRule, Stream stream){
@@ -165,6 +213,35 @@ public class StreamPipelineService {
         return save;
     }
 
+    /**
+     * Updates the rule in place, keeping its id, and only writes it when its title or source changed.
+     */
+    private RuleDao createOrUpdatePipelineRule(String alertTitle, List<FieldRuleImpl> listfieldRule, Stream stream, String ruleID) {
+        if (ruleID == null) {
+            return createPipelineRule(alertTitle, listfieldRule, stream, null);
+        }
+        final RuleDao rule;
+        try {
+            rule = ruleService.load(ruleID);
+        } catch (NotFoundException e) {
+            LOG.debug("Rule {} not found, creating it again", ruleID);
+            return createPipelineRule(alertTitle, listfieldRule, stream, ruleID);
+        }
+        final String title = "function " + alertTitle;
+        final String source = createRuleSource(alertTitle, listfieldRule, stream);
+        if (title.equals(rule.title()) && source.equals(rule.source())) {
+            return rule;
+        }
+        final RuleDao save = ruleService.save(rule.toBuilder()
+                .title(title)
+                .source(source)
+                .modifiedAt(DateTime.now(DateTimeZone.UTC))
+                .build());
+
+        LOG.debug("Updated rule {}", save);
+        return save;
+    }
+
     public String createPipelineStringSource(String alertTitle, String matchingType) {
         String match;
         if (matchingType.equals("OR")){
@@ -175,6 +252,34 @@ public class StreamPipelineService {
         return "pipeline \""+alertTitle+"\"\nstage 0 match "+match+"\nrule \"function "+alertTitle+"\"\nend";
     }
 
+    /**
+     * Updates the pipeline in place, keeping its id and its stream connection, and only writes it when its title or source changed.
+     */
+    private PipelineDao createOrUpdatePipeline(String alertTitle, String pipelineID, String matchingType) {
+        if (pipelineID == null) {
+            return createPipeline(alertTitle, null, matchingType);
+        }
+        final PipelineDao pipeline;
+        try {
+            pipeline = pipelineService.load(pipelineID);
+        } catch (NotFoundException e) {
+            LOG.debug("Pipeline {} not found, creating it again", pipelineID);
+            return createPipeline(alertTitle, pipelineID, matchingType);
+        }
+        final String source = createPipelineStringSource(alertTitle, matchingType);
+        if (alertTitle.equals(pipeline.title()) && source.equals(pipeline.source())) {
+            return pipeline;
+        }
+        final PipelineDao save = pipelineService.save(pipeline.toBuilder()
+                .title(alertTitle)
+                .source(source)
+                .modifiedAt(DateTime.now(DateTimeZone.UTC))
+                .build());
+
+        LOG.debug("Updated pipeline {}", save);
+        return save;
+    }
+
     public PipelineDao createPipeline(String alertTitle, String pipelineID, String matchingType) {
 
         final DateTime now = DateTime.now(DateTimeZone.UTC);
@@ -184,23 +289,112 @@ public class StreamPipelineService {
         }
         final PipelineDao cr = PipelineDao.create(pipelineID, alertTitle, AlertRuleUtils.COMMENT_ALERT_WIZARD, createPipelineStringSource(alertTitle, matchingType), now, now);
         final PipelineDao save = pipelineService.save(cr);
+        defaultStreamConnections.connect(save.id());
+
+        LOG.debug("Created new pipeline {}", save);
+        return save;
+    }
+
+    private ListRulesModeType getListRulesMode() {
+        final AlertWizardConfig config = clusterConfigService.get(AlertWizardConfig.class);
+        if (config == null || config.accessListRulesMode() == null) {
+            return ListRulesModeType.PIPELINE_PER_ALERT;
+        }
+        return config.accessListRulesMode();
+    }
+
+    private List<String> collectSharedRuleTitles(List<AlertRule> alerts) {
+        final List<String> ruleTitles = new ArrayList<>();
+        for (AlertRule alert : alerts) {
+            if (alert.getPipelineRuleID() != null && alert.getPipelineID() == null) {
+                ruleTitles.add("function " + alert.getTitle());
+            }
+            if (alert.getSecondPipelineRuleID() != null && alert.getSecondPipelineID() == null) {
+                ruleTitles.add("function " + alert.getTitle() + "#2");
+            }
+        }
+        return ruleTitles;
+    }
 
-        Set<String> pipelineIds;
+    public String createSharedPipelineSource(List<String> ruleTitles) {
+        StringBuilder source = new StringBuilder("pipeline \"" + SHARED_PIPELINE_TITLE + "\"\nstage 0 match either\n");
+        for (String ruleTitle : ruleTitles) {
+            source.append("rule \"").append(ruleTitle).append("\"\n");
+        }
+        return source.append("end").toString();
+    }
+
+    /**
+     * Regenerates the pipeline shared by the alert rules which have no pipeline of their own
+     * (the ones saved in the shared pipeline mode), so that messages go through a single pipeline for all of them.
+     * Outside of the shared pipeline mode, the alert rules are only listed when a shared pipeline is left to drain.
+     * The pipeline is saved under a fixed ID so that nodes creating it concurrently upsert the same document,
+     * and its source is computed again after saving until it matches the alert rules read afterwards.
+     */
+    public void updateSharedPipeline(Supplier<List<AlertRule>> alerts) {
+        synchronized (SHARED_PIPELINE_LOCK) {
+            if (getListRulesMode() != ListRulesModeType.SHARED_PIPELINE && loadSharedPipeline() == null) {
+                return;
+            }
+            for (int attempt = 0; attempt < SHARED_PIPELINE_ATTEMPTS; attempt++) {
+                if (!saveSharedPipeline(collectSharedRuleTitles(alerts.get()))) {
+                    return;
+                }
+            }
+            LOG.warn("Shared pipeline {} kept changing while being regenerated", SHARED_PIPELINE_TITLE);
+        }
+    }
+
+    private PipelineDao loadSharedPipeline() {
         try {
-            pipelineIds = pipelineStreamConnectionsService.load("000000000000000000000001").pipelineIds();
+            return pipelineService.loadByName(SHARED_PIPELINE_TITLE);
         } catch (NotFoundException e) {
-            pipelineIds =  new HashSet<>();
+            return null;
         }
-        pipelineIds.add(save.id());
-        pipelineStreamConnectionsService.save(PipelineConnections.create(null, "000000000000000000000001", pipelineIds));
+    }
 
-        LOG.debug("Created new pipeline {}", save);
-        return save;
+    /**
+     * @return whether the shared pipeline had to be changed
+     */
+    private boolean saveSharedPipeline(List<String> ruleTitles) {
+        final PipelineDao sharedPipeline = loadSharedPipeline();
+
+        if (ruleTitles.isEmpty()) {
+            if (sharedPipeline == null) {
+                return false;
+            }
+            pipelineService.delete(sharedPipeline.id());
+            defaultStreamConnections.disconnect(sharedPipeline.id());
+            return true;
+        }
+
+        final String source = createSharedPipelineSource(ruleTitles);
+        final DateTime now = DateTime.now(DateTimeZone.UTC);
+        if (sharedPipeline == null) {
+            final PipelineDao save = pipelineService.save(PipelineDao.create(SHARED_PIPELINE_ID,
+                    SHARED_PIPELINE_TITLE, AlertRuleUtils.COMMENT_ALERT_WIZARD, source, now, now));
+            defaultStreamConnections.connect(save.id());
+            LOG.debug("Created shared pipeline {}", save);
+            return true;
+        }
+        if (source.equals(sharedPipeline.source())) {
+            return false;
+        }
+        pipelineService.save(sharedPipeline.toBuilder().source(source).modifiedAt(now).build());
+        return true;
+    }
+
+    /**
+     * Applies the default stream connections of the pipelines created or deleted since the last call.
+     */
+    public void flushPipelineConnections() {
+        defaultStreamConnections.flush();
     }
 
     public void deletePipeline(String pipelineID, String ruleID){
         if(pipelineID != null && !pipelineID.isEmpty()) {
             pipelineService.delete(pipelineID);
+            defaultStreamConnections.disconnect(pipelineID);
         }
         if(ruleID != null && !ruleID.isEmpty()) {
             ruleService.delete(ruleID);
@@ -225,17 +419,22 @@ public class StreamPipelineService {
         return stream;
     }
 
-    public Stream createOrUpdateSecondStream(AlertRuleStream alertRuleStream, String title, String userName, String conditionType, AlertRule oldAlert) throws ValidationException, NotFoundException {
+    public Stream createOrUpdateSecondStream(AlertRuleStream alertRuleStream, String title, String userName, String conditionType, AlertRule oldAlert,
+                                             Supplier<SharedStreams> sharedStreams) throws ValidationException, NotFoundException {
         if(conditionType.equals("THEN") || conditionType.equals("AND") || conditionType.equals("OR")) {
             if(oldAlert.getSecondStreamID() != null) {
                 Stream stream2 = streamService.load(oldAlert.getSecondStreamID());
-                updateStream(stream2, alertRuleStream, title+"#2");
-                return stream2;
+                return updateOrDetachStream(stream2, alertRuleStream, title+"#2", userName, oldAlert.getTitle(), sharedStreams);
             }else {
+                Stream sharableStream = findSharableStream(alertRuleStream, oldAlert.getTitle(), sharedStreams);
+                if (sharableStream != null) {
+                    return sharableStream;
+                }
                 return createStream(alertRuleStream, title+"#2", userName);
             }
-            //Delete old stream if one
-        }else if(oldAlert.getSecondStreamID() != null && !oldAlert.getSecondStreamID().isEmpty()) {
+            //Delete old stream if one, unless other alert rules share it
+        }else if(oldAlert.getSecondStreamID() != null && !oldAlert.getSecondStreamID().isEmpty()
+                && !alertRuleService.isStreamUsedByOthers(oldAlert.getSecondStreamID(), oldAlert.getTitle())) {
             deleteStreamFromID(oldAlert.getSecondStreamID());
         }
         return null;
@@ -243,6 +442,8 @@ public class StreamPipelineService {
 
     public void updateStream(Stream stream, AlertRuleStream alertRuleStream, String title) throws ValidationException {
         LOG.debug("Update Stream: " + stream.getId());
+        final String previousTitle = stream.getTitle();
+        final Stream.MatchingType previousMatchingType = stream.getMatchingType();
         stream.setTitle(title);
         if (alertRuleStream.getMatchingType() != null) {
             try {
@@ -252,17 +453,205 @@ public class StreamPipelineService {
                         + "' specified. Should be one of: " + Arrays.toString(Stream.MatchingType.values()));
             }
         }
-        streamService.save(stream);
+        final boolean matchingTypeChanged = stream.getMatchingType() != previousMatchingType;
+        if (matchingTypeChanged || !title.equals(previousTitle)) {
+            streamService.save(stream);
+        }
 
-        //TODO do it better (don't destroy if update)
-        // Destroy existing stream rules
-        for (StreamRule streamRule:stream.getStreamRules()) {
+        // Only destroy the stream rules which are no longer requested and create the new ones
+        final List<FieldRuleImpl> addedFieldRules = extractStreamFieldRules(alertRuleStream.getFieldRules());
+        final List<StreamRule> removedStreamRules = matchStreamRules(stream.getStreamRules(), addedFieldRules);
+        for (StreamRule streamRule : removedStreamRules) {
             streamRuleService.destroy(streamRule);
         }
-        // Create stream rules.
-        createStreamRule(alertRuleStream.getFieldRules(), stream.getId());
+        createStreamRule(addedFieldRules, stream.getId());
+
+        if (matchingTypeChanged || !removedStreamRules.isEmpty() || !addedFieldRules.isEmpty()) {
+            clusterEventBatch.streamChanged(stream.getId());
+        }
+    }
+
+    private static List<FieldRuleImpl> extractStreamFieldRules(List<FieldRuleImpl> listfieldRule) {
+        final List<FieldRuleImpl> streamFieldRules = new ArrayList<>();
+        for (FieldRuleImpl fieldRule : listfieldRule) {
+            if (fieldRule.getType() != -7 && fieldRule.getType() != 7) {
+                streamFieldRules.add(fieldRule);
+            }
+        }
+        return streamFieldRules;
+    }
+
+    /**
+     * Removes from the field rules the ones matching a stream rule.
+     *
+     * @return the stream rules which match none of the field rules
+     */
+    static List<StreamRule> matchStreamRules(List<StreamRule> streamRules, List<FieldRuleImpl> fieldRules) {
+        final List<StreamRule> unmatchedStreamRules = new ArrayList<>();
+        for (StreamRule streamRule : streamRules) {
+            final Optional<FieldRuleImpl> fieldRule = fieldRules.stream()
+                    .filter(rule -> isSameRule(streamRule, rule))
+                    .findFirst();
+            if (fieldRule.isPresent()) {
+                fieldRules.remove(fieldRule.get());
+            } else {
+                unmatchedStreamRules.add(streamRule);
+            }
+        }
+        return unmatchedStreamRules;
+    }
+
+    private boolean isStreamSharingEnabled() {
+        final AlertWizardConfig config = clusterConfigService.get(AlertWizardConfig.class);
+        return config != null && Boolean.TRUE.equals(config.accessShareStreams());
+    }
+
+    /**
+     * Identifies the stream rules of a stream, whatever their order.
+     */
+    static String routingKey(List<StreamRule> streamRules) {
+        final List<String> signatures = new ArrayList<>();
+        for (StreamRule streamRule : streamRules) {
+            signatures.add(ruleSignature(streamRule.getType().toInteger(), Boolean.TRUE.equals(streamRule.getInverted()),
+                    streamRule.getField(), streamRule.getValue()));
+        }
+        Collections.sort(signatures);
+        return String.join("\n", signatures);
+    }
+
+    /**
+     * Identifies the stream rules which the given field rules are converted to, as {@link #routingKey(List)}.
+     */
+    static String routingKey(Collection<FieldRuleImpl> streamFieldRules) {
+        final List<String> signatures = new ArrayList<>();
+        for (FieldRuleImpl fieldRule : streamFieldRules) {
+            signatures.add(ruleSignature(Math.abs(fieldRule.getType()), fieldRule.getType() < 0,
+                    fieldRule.getField(), fieldRule.getValue()));
+        }
+        Collections.sort(signatures);
+        return String.join("\n", signatures);
+    }
+
+    private static String ruleSignature(int type, boolean inverted, String field, String value) {
+        return type + "|" + inverted + "|" + field + "|" + value;
+    }
+
+    private static boolean hasSameRouting(Stream stream, AlertRuleStream alertRuleStream) {
+        if (alertRuleStream.getMatchingType() != null && !alertRuleStream.getMatchingType().equals(stream.getMatchingType().toString())) {
+            return false;
+        }
+        return routingKey(stream.getStreamRules()).equals(routingKey(extractStreamFieldRules(alertRuleStream.getFieldRules())));
+    }
+
+    /**
+     * Loads the streams of the alert rules, to look for streams to share during a request.
+     */
+    public SharedStreams loadSharedStreams(Collection<AlertRule> alertRules) {
+        final Set<String> streamIDs = new HashSet<>();
+        for (AlertRule alertRule : alertRules) {
+            if (alertRule.getStreamID() != null) {
+                streamIDs.add(alertRule.getStreamID());
+            }
+            if (alertRule.getSecondStreamID() != null) {
+                streamIDs.add(alertRule.getSecondStreamID());
+            }
+        }
+        final Map<String, Stream> streams = new HashMap<>();
+        if (!streamIDs.isEmpty()) {
+            for (Stream stream : streamService.loadByIds(streamIDs)) {
+                streams.put(stream.getId(), stream);
+            }
+        }
+        final SharedStreams sharedStreams = new SharedStreams();
+        for (AlertRule alertRule : alertRules) {
+            sharedStreams.register(alertRule.getTitle(), streams.get(alertRule.getStreamID()), alertRule.getPipelineFieldRules());
+            sharedStreams.register(alertRule.getTitle(), streams.get(alertRule.getSecondStreamID()), alertRule.getSecondPipelineFieldRules());
+        }
+        return sharedStreams;
+    }
+
+    /**
+     * When streams are shared, looks for a stream of another alert rule routing messages exactly as requested.
+     * Streams targeted by list rules are never shared, as their pipeline rule routes messages to them.
+     * The streams of the alert rules are only loaded when sharing is enabled.
+     *
+     * @return the stream to share, or null if a new stream must be created
+     */
+    public Stream findSharableStream(AlertRuleStream alertRuleStream, String title, Supplier<SharedStreams> sharedStreams) {
+        if (!isStreamSharingEnabled() || !extractPipelineFieldRules(alertRuleStream.getFieldRules()).isEmpty()) {
+            return null;
+        }
+        final Stream stream = sharedStreams.get().find(alertRuleStream.getMatchingType(),
+                extractStreamFieldRules(alertRuleStream.getFieldRules()), title);
+        if (stream != null) {
+            LOG.debug("Share stream {}", stream.getId());
+        }
+        return stream;
+    }
 
-        clusterEventBus.post(StreamsChangedEvent.create(stream.getId()));
+    /**
+     * Updates the stream of an alert rule. A stream shared with other alert rules is left as is when the requested
+     * routing is the same, otherwise the alert rule gets another stream.
+     */
+    public Stream updateOrDetachStream(Stream stream, AlertRuleStream alertRuleStream, String title, String userName,
+                                       String previousTitle, Supplier<SharedStreams> sharedStreams) throws ValidationException {
+        if (!alertRuleService.isStreamUsedByOthers(stream.getId(), previousTitle)) {
+            updateStream(stream, alertRuleStream, title);
+            return stream;
+        }
+        if (extractPipelineFieldRules(alertRuleStream.getFieldRules()).isEmpty() && hasSameRouting(stream, alertRuleStream)) {
+            return stream;
+        }
+        final Stream sharableStream = findSharableStream(alertRuleStream, previousTitle, sharedStreams);
+        if (sharableStream != null) {
+            return sharableStream;
+        }
+        final Stream newStream = createStream(alertRuleStream, title, userName);
+        clusterEventBatch.streamChanged(newStream.getId());
+        return newStream;
+    }
+
+    /**
+     * Pauses the stream of an alert rule. A stream shared with other alert rules keeps routing messages to them:
+     * the alert rule is detached onto a paused copy of the stream instead.
+     *
+     * @return the stream of the alert rule
+     */
+    public Stream pauseOrDetachStream(Stream stream, String title, String userName, String alertTitle) throws ValidationException {
+        Stream pausedStream = stream;
+        if (alertRuleService.isStreamUsedByOthers(stream.getId(), alertTitle)) {
+            LOG.debug("Detach alert rule {} from stream {}", alertTitle, stream.getId());
+            pausedStream = cloneStream(stream, title, userName);
+            for (Output output : stream.getOutputs()) {
+                streamService.addOutput(pausedStream, output);
+            }
+        }
+        streamService.pause(pausedStream);
+        clusterEventBatch.streamChanged(pausedStream.getId());
+        return pausedStream;
+    }
+
+    public void resumeStream(Stream stream) throws ValidationException {
+        streamService.resume(stream);
+        clusterEventBatch.streamChanged(stream.getId());
+    }
+
+    /**
+     * When streams are shared, a clone shares the stream of its source alert rule, unless list rules target it.
+     */
+    public Stream cloneOrShareStream(Stream sourceStream, List<FieldRuleImpl> sourcePipelineFieldRules, String newTitle,
+                                     String creatorUser) throws ValidationException {
+        if (isStreamSharingEnabled() && (sourcePipelineFieldRules == null || sourcePipelineFieldRules.isEmpty())) {
+            return sourceStream;
+        }
+        return cloneStream(sourceStream, newTitle, creatorUser);
+    }
+
+    static boolean isSameRule(StreamRule streamRule, FieldRule fieldRule) {
+        return streamRule.getType().toInteger() == Math.abs(fieldRule.getType())
+                && Boolean.TRUE.equals(streamRule.getInverted()) == (fieldRule.getType() < 0)
+                && Objects.equals(streamRule.getField(), fieldRule.getField())
+                && Objects.equals(streamRule.getValue(), fieldRule.getValue());
     }
 
     public  Stream cloneStream(Stream sourceStream, String newTitle, String creatorUser) throws ValidationException {
@@ -283,6 +672,7 @@ public class StreamPipelineService {
         final String streamID = streamService.save(stream);
 
         final List<StreamRule> sourceStreamRules = streamRuleService.loadForStream(sourceStream);
+        final List<Map<String, Object>> streamRules = new ArrayList<>(sourceStreamRules.size());
         for (StreamRule streamRule : sourceStreamRules) {
             final Map<String, Object> streamRuleData = Maps.newHashMapWithExpectedSize(6);
 
@@ -293,9 +683,9 @@ public class StreamPipelineService {
             streamRuleData.put(StreamRuleImpl.FIELD_STREAM_ID, new ObjectId(streamID));
             streamRuleData.put(StreamRuleImpl.FIELD_DESCRIPTION, streamRule.getDescription());
 
-            final StreamRule newStreamRule = streamRuleService.create(streamRuleData);
-            streamRuleService.save(newStreamRule);
+            streamRules.add(streamRuleData);
         }
+        insertStreamRules(streamRules);
         return stream;
     }
 
@@ -303,8 +693,7 @@ public class StreamPipelineService {
         try {
             if(stream != null) {
                 streamService.destroy(stream);
-                clusterEventBus.post(StreamsChangedEvent.create(stream.getId()));
-                clusterEventBus.post(StreamDeletedEvent.create(stream.getId()));
+                clusterEventBatch.streamDeleted(stream.getId());
             }
         } catch (NotFoundException e) {
             LOG.error("Cannot find the stream ", e);
@@ -344,19 +733,25 @@ public class StreamPipelineService {
     }
 
     public CacheDto createUniqueCache() {
+        AlertListLookupCache.Config config = AlertListLookupCache.Config.builder()
+                .type(AlertListLookupCache.NAME)
+                .maxSize(1000)
+                .expireAfterWrite(60)
+                .build();
+
+        String cacheID = RandomStringUtils.random(RANDOM_COUNT, RANDOM_CHARS);
         final Collection<CacheDto> caches = dbCacheService.findAll();
         for (CacheDto cacheDto:caches) {
             if(cacheDto.title().equals("wizard cache")){
-                return cacheDto;
+                if (cacheDto.config().type().equals(AlertListLookupCache.NAME)) {
+                    return cacheDto;
+                }
+                // Replace the former null cache
+                cacheID = cacheDto.id();
+                break;
             }
         }
 
-        final String cacheID = RandomStringUtils.random(RANDOM_COUNT, RANDOM_CHARS);
-
-        NullCache.Config config = NullCache.Config.builder()
-                .type("none")
-                .build();
-
         CacheDto dto = CacheDto.builder()
                 .id(cacheID)
                 .name("wizard-cache")
@@ -365,33 +760,29 @@ public class StreamPipelineService {
                 .config(config)
                 .build();
 
-        return dbCacheService.save(dto);
+        final CacheDto saved = dbCacheService.save(dto);
+        clusterEventBus.post(CachesUpdated.create(saved.id()));
+        return saved;
     }
 
-    public DataAdapterDto createUniqueDataAdapter(String userName) {
+    public DataAdapterDto createUniqueDataAdapter() {
+        AlertListDataAdapter.Config config = AlertListDataAdapter.Config.builder()
+                .type(AlertListDataAdapter.NAME)
+                .build();
 
+        String adapterID = RandomStringUtils.random(RANDOM_COUNT, RANDOM_CHARS);
         final Collection<DataAdapterDto> adapters = dbDataAdapterService.findAll();
         for (DataAdapterDto dataAdapters:adapters) {
             if (dataAdapters.title().equals("Wizard data adapter")){
-                return dataAdapters;
+                if (dataAdapters.config().type().equals(AlertListDataAdapter.NAME)) {
+                    return dataAdapters;
+                }
+                // Replace the former HTTP adapter calling back the lists REST API
+                adapterID = dataAdapters.id();
+                break;
             }
         }
 
-        Map<String, String> headers = new HashMap<>();
-        headers.put("Authorization", "Basic user:password(base64)");
-
-        final String adapterID = RandomStringUtils.random(RANDOM_COUNT, RANDOM_CHARS);
-        final String url = httpConfiguration.getHttpPublishUri().resolve(HttpConfiguration.PATH_API).toString() + "plugins/com.airbus_cyber_security.graylog/lists/${key}";
-
-        HTTPJSONPathDataAdapter.Config config = HTTPJSONPathDataAdapter.Config.builder()
-                .type("")
-                .url(url)
-                .singleValueJSONPath("$.lists.lists")
-                .multiValueJSONPath("$.lists.lists")
-                .userAgent(userName)
-                .headers(headers)
-                .build();
-
         DataAdapterDto dto = DataAdapterDto.builder()
                 .id(adapterID)
                 .title("Wizard data adapter")
@@ -401,7 +792,9 @@ public class StreamPipelineService {
                 .config(config)
                 .build();
 
-        return dbDataAdapterService.save(dto);
+        final DataAdapterDto saved = dbDataAdapterService.save(dto);
+        clusterEventBus.post(DataAdaptersUpdated.create(saved.id()));
+        return saved;
     }
 
     public List<FieldRuleImpl> extractPipelineFieldRules(List<FieldRuleImpl> listFieldRule){
@@ -415,27 +808,34 @@ public class StreamPipelineService {
     }
 
     public StreamPipelineObject createPipelineAndRule(Stream stream, String alertTitle, List<FieldRuleImpl> listfieldRule, String matchingType){
-        String pipelineID = null;
-        String pipelineRuleID = null;
-        List<FieldRuleImpl> listPipelineFieldRule = extractPipelineFieldRules(listfieldRule);
-        if(!listPipelineFieldRule.isEmpty()) {
-            RuleDao pipelineRule = createPipelineRule(alertTitle, listPipelineFieldRule, stream, null);
-            PipelineDao pipeline = createPipeline(alertTitle, null, matchingType);
-            pipelineID = pipeline.id();
-            pipelineRuleID = pipelineRule.id();
-        }
-        return new StreamPipelineObject(stream, pipelineID, pipelineRuleID, listPipelineFieldRule);
+        return updatePipeline(alertTitle, null, null, listfieldRule, stream, matchingType);
     }
 
-    public StreamPipelineObject createStreamAndPipeline(AlertRuleStream alertRuleStream, String alertTitle, String userName, String matchingType)
-            throws ValidationException {
-        Stream stream = createStream(alertRuleStream, alertTitle, userName);
+    public StreamPipelineObject createStreamAndPipeline(AlertRuleStream alertRuleStream, String alertTitle, String userName, String matchingType,
+                                                        Supplier<SharedStreams> sharedStreams) throws ValidationException {
+        Stream stream = findSharableStream(alertRuleStream, alertTitle, sharedStreams);
+        if (stream == null) {
+            stream = createStream(alertRuleStream, alertTitle, userName);
+        }
         return createPipelineAndRule(stream, alertTitle, alertRuleStream.getFieldRules(), matchingType);
     }
 
     public StreamPipelineObject updatePipeline(String alertTitle, String pipelineID, String pipelineRuleID, List<FieldRuleImpl> listfieldRule, Stream stream, String matchingType) {
-        deletePipeline(pipelineID, pipelineRuleID);
-        return createPipelineAndRule(stream, alertTitle, listfieldRule, matchingType);
+        List<FieldRuleImpl> listPipelineFieldRule = extractPipelineFieldRules(listfieldRule);
+        final ListRulesModeType listRulesMode = getListRulesMode();
+        // In the message processor mode the list rules are evaluated by the ListRulesMessageProcessor, without any pipeline
+        if(listPipelineFieldRule.isEmpty() || listRulesMode == ListRulesModeType.MESSAGE_PROCESSOR) {
+            deletePipeline(pipelineID, pipelineRuleID);
+            return new StreamPipelineObject(stream, null, null, listPipelineFieldRule);
+        }
+        RuleDao pipelineRule = createOrUpdatePipelineRule(alertTitle, listPipelineFieldRule, stream, pipelineRuleID);
+        // In the shared pipeline mode the rule is only referenced by the shared pipeline
+        if (listRulesMode == ListRulesModeType.SHARED_PIPELINE) {
+            deletePipeline(pipelineID, null);
+            return new StreamPipelineObject(stream, null, pipelineRule.id(), listPipelineFieldRule);
+        }
+        PipelineDao pipeline = createOrUpdatePipeline(alertTitle, pipelineID, matchingType);
+        return new StreamPipelineObject(stream, pipeline.id(), pipelineRule.id(), listPipelineFieldRule);
     }
 
 }
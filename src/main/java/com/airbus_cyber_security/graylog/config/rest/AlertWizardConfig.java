@@ -46,13 +46,30 @@ public abstract class AlertWizardConfig {
 	@Nullable
 	public abstract ImportPolicyType accessImportPolicy();
 	
+	@JsonProperty("list_rules_mode")
+	@Nullable
+	public abstract ListRulesModeType accessListRulesMode();
+	
+	@JsonProperty("share_streams")
+	@Nullable
+	public abstract Boolean accessShareStreams();
+
+	@JsonProperty("off_heap_threshold")
+	@Nullable
+	public abstract Integer accessOffHeapThreshold();
+	
 	@JsonCreator
     public static AlertWizardConfig create(@JsonProperty("field_order") List<FieldWizard> fieldOrder,
-    		@JsonProperty("default_values") DefaultValues defaultValues, @JsonProperty("import_policy") ImportPolicyType importPolicy ){
+    		@JsonProperty("default_values") DefaultValues defaultValues, @JsonProperty("import_policy") ImportPolicyType importPolicy,
+    		@JsonProperty("list_rules_mode") ListRulesModeType listRulesMode, @JsonProperty("share_streams") Boolean shareStreams,
+    		@JsonProperty("off_heap_threshold") Integer offHeapThreshold){
         return builder()
                 .accessFieldOrder(fieldOrder)
                 .accessDefaultValues(defaultValues)
                 .accessImportPolicy(importPolicy)
+                .accessListRulesMode(listRulesMode)
+                .accessShareStreams(shareStreams)
+                .accessOffHeapThreshold(offHeapThreshold)
                 .build();
     }
 
@@ -81,6 +98,9 @@ public abstract class AlertWizardConfig {
 						1,
 						500))
 				.accessImportPolicy(ImportPolicyType.DONOTHING)
+				.accessListRulesMode(ListRulesModeType.PIPELINE_PER_ALERT)
+				.accessShareStreams(false)
+				.accessOffHeapThreshold(1000000)
 				.build();
 	}
 	
@@ -95,6 +115,9 @@ public abstract class AlertWizardConfig {
 	 	public abstract Builder accessFieldOrder(List<FieldWizard> fieldOrder);
 	 	public abstract Builder accessDefaultValues(DefaultValues defaultValues);
 	 	public abstract Builder accessImportPolicy(ImportPolicyType importPolicy);
+	 	public abstract Builder accessListRulesMode(ListRulesModeType listRulesMode);
+	 	public abstract Builder accessShareStreams(Boolean shareStreams);
+	 	public abstract Builder accessOffHeapThreshold(Integer offHeapThreshold);
 	 	public abstract AlertWizardConfig build();
 	}
 }
@@ -38,4 +38,6 @@ public interface AlertList {
 
     public String getLists();
 
+    public AlertListKind getKind();
+
 }
@@ -23,6 +23,7 @@ package com.airbus_cyber_security.graylog.list;
 import com.fasterxml.jackson.annotation.JsonAutoDetect;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.auto.value.AutoValue;
 import org.graylog2.database.CollectionName;
@@ -74,6 +75,26 @@ public abstract class AlertListImpl implements AlertList {
     @Nullable
     public abstract String getLists();
 
+    @JsonProperty("kind")
+    @Override
+    @Nullable
+    public abstract AlertListKind getKind();
+
+    /**
+     * Deflated content of large lists as stored in the database, the lists are then null.
+     * Lists returned by the {@link AlertListService} are always inflated.
+     */
+    @JsonProperty("deflated_lists")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @Nullable
+    @SuppressWarnings("mutable")
+    public abstract byte[] getDeflatedLists();
+
+    AlertListImpl withLists(String lists, byte[] deflatedLists) {
+        return new AutoValue_AlertListImpl(getTitle(), getCreatedAt(), getCreatorUserId(), getLastModified(),
+                getDescription(), getUsage(), lists, getKind(), deflatedLists);
+    }
+
     @JsonCreator
     public static AlertListImpl create(@JsonProperty("_id") String objectId,
                                        @JsonProperty("title") String title,
@@ -82,9 +103,11 @@ public abstract class AlertListImpl implements AlertList {
                                        @JsonProperty("last_modified") DateTime lastModified,
                                        @JsonProperty("description") String description,
                                        @JsonProperty("usage") int usage,
-                                       @JsonProperty("lists") String lists){
+                                       @JsonProperty("lists") String lists,
+                                       @JsonProperty("kind") AlertListKind kind,
+                                       @JsonProperty("deflated_lists") byte[] deflatedLists){
         return new AutoValue_AlertListImpl(title, createdAt, creatorUserId,
-                lastModified, description, usage, lists);
+                lastModified, description, usage, lists, kind, deflatedLists);
     }
 
     public static AlertListImpl create(
@@ -94,8 +117,9 @@ public abstract class AlertListImpl implements AlertList {
             DateTime lastModified,
             String description,
             int usage,
-            String lists) {
+            String lists,
+            AlertListKind kind) {
         return new AutoValue_AlertListImpl(title, createdAt, creatorUserId,
-                lastModified, description, usage, lists);
+                lastModified, description, usage, lists, kind, null);
     }
 }
@@ -0,0 +1,413 @@
+/*
+ * graylog-plugin-alert-wizard Source Code
+ * Copyright (C) 2018-2020 - Airbus CyberSecurity (SAS) - All rights reserved
+ *
+ * This file is part of the graylog-plugin-alert-wizard GPL Source Code.
+ *
+ * graylog-plugin-alert-wizard Source Code is free software:
+ * you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * This code is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this code.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.airbus_cyber_security.graylog.list;
+
+import com.airbus_cyber_security.graylog.config.rest.AlertWizardConfig;
+import com.airbus_cyber_security.graylog.list.events.AlertListEntriesChangedEvent;
+import com.airbus_cyber_security.graylog.list.events.AlertListsChangedEvent;
+import com.airbus_cyber_security.graylog.list.matchers.AhoCorasickListMatcher;
+import com.airbus_cyber_security.graylog.list.matchers.BloomFilterListMatcher;
+import com.airbus_cyber_security.graylog.list.matchers.CidrListMatcher;
+import com.airbus_cyber_security.graylog.list.matchers.ExactListMatcher;
+import com.airbus_cyber_security.graylog.list.matchers.ListMatcher;
+import com.airbus_cyber_security.graylog.list.matchers.OffHeapListMatcher;
+import com.airbus_cyber_security.graylog.list.matchers.PrefixListMatcher;
+import com.airbus_cyber_security.graylog.list.matchers.RegexListMatcher;
+import com.airbus_cyber_security.graylog.list.utilities.AlertListUtils;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+import com.google.common.util.concurrent.Striped;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.graylog2.plugin.cluster.ClusterConfigService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Collectors;
+
+/**
+ * Node-local index of the parsed wizard lists, shared by the lookup adapter and the pipeline functions.
+ * Lists are loaded on first access and rebuilt whenever they are changed, on this node by the
+ * {@link AlertListService} or on another node through an {@link AlertListsChangedEvent}.
+ * A list which fails to load or rebuild keeps its previous value, failed loads are not cached.
+ * The entries of a list are the ones of its inline text merged with the bulk loaded ones.
+ * Every rebuild increments the version of the index.
+ * Lists with at least off_heap_threshold entries, a wizard setting, keep their entries off heap:
+ * they are collected encoded when loaded and deltas are merged into their buffers.
+ * Lookups, hits, misses, hit ratio, sampled latency, size and memory footprint of each list are published
+ * in the metric registry.
+ * The lists held by a node are restored in the background from its {@link AlertListSnapshot} when it starts.
+ */
+@Singleton
+public class AlertListIndex {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AlertListIndex.class);
+
+    private static final int DEFAULT_OFF_HEAP_THRESHOLD = 1000000;
+    private static final String METRICS_PREFIX = "com.airbus_cyber_security.graylog.lists";
+    private static final List<String> METRIC_NAMES =
+            ImmutableList.of("entries", "memory", "lookups", "hits", "misses", "hit-ratio", "latency");
+
+    private final Provider<AlertListService> alertListService;
+    private final ClusterConfigService clusterConfigService;
+    private final ConcurrentHashMap<String, Optional<IndexedAlertList>> lists = new ConcurrentHashMap<>();
+    private final Interner<String> interner = Interners.newWeakInterner();
+    private final AtomicLong version = new AtomicLong();
+    private final MetricRegistry metricRegistry;
+    private final ConcurrentHashMap<String, AlertListMetrics> metrics = new ConcurrentHashMap<>();
+    // Loads are serialized per title outside of the map, so that lookups of other lists never wait on Mongo
+    private final Striped<Lock> loadLocks = Striped.lazyWeakLock(64);
+    private volatile boolean restored = false;
+
+    @Inject
+    public AlertListIndex(Provider<AlertListService> alertListService, EventBus serverEventBus,
+                          AlertListSnapshot snapshot, MetricRegistry metricRegistry,
+                          ClusterConfigService clusterConfigService) {
+        this.alertListService = alertListService;
+        this.clusterConfigService = clusterConfigService;
+        this.metricRegistry = metricRegistry;
+        serverEventBus.register(this);
+        // Decoding the snapshot and compiling its lists may take a while, it must not hold up the injector
+        new ThreadFactoryBuilder()
+                .setNameFormat("wizard-lists-restore")
+                .setDaemon(true)
+                .build()
+                .newThread(() -> restore(snapshot))
+                .start();
+    }
+
+    /**
+     * @return whether the lists of the node snapshot were restored, they are not all held by the index before
+     */
+    public boolean isRestored() {
+        return restored;
+    }
+
+    private void restore(AlertListSnapshot snapshot) {
+        try {
+            final int count = snapshot.read(this::restore);
+            if (count > 0) {
+                LOG.info("Restored {} wizard lists from the node snapshot", count);
+            }
+        } finally {
+            restored = true;
+        }
+    }
+
+    /**
+     * Lists loaded from the database while the snapshot was read are more recent, they are kept.
+     */
+    private void restore(AlertListSnapshot.Entry entry) {
+        final String title = entry.getTitle();
+        final Lock lock = loadLocks.get(title);
+        lock.lock();
+        try {
+            if (!lists.containsKey(title)) {
+                lists.put(title, Optional.of(index(title, entry.getKind(), entry.getLastModified(), entry.getEntries())));
+            }
+        } catch (Exception e) {
+            LOG.warn("Unable to restore wizard list {}: {}", title, e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    public Optional<IndexedAlertList> get(String title) {
+        final Optional<IndexedAlertList> current = lists.get(title);
+        if (current != null) {
+            return current;
+        }
+        final Lock lock = loadLocks.get(title);
+        lock.lock();
+        try {
+            final Optional<IndexedAlertList> loaded = lists.get(title);
+            if (loaded != null) {
+                return loaded;
+            }
+            final AlertList alertList = alertListService.get().load(title);
+            final Optional<IndexedAlertList> indexed =
+                    (alertList == null) ? Optional.empty() : Optional.of(build(alertList));
+            final Optional<IndexedAlertList> concurrent = lists.putIfAbsent(title, indexed);
+            return (concurrent == null) ? indexed : concurrent;
+        } catch (Exception e) {
+            LOG.warn("Unable to load wizard list {}: {}", title, e.getMessage());
+            return Optional.empty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void put(AlertList alertList) {
+        final String title = alertList.getTitle();
+        final Lock lock = loadLocks.get(title);
+        lock.lock();
+        try {
+            lists.put(title, Optional.of(build(alertList)));
+        } catch (Exception e) {
+            LOG.warn("Unable to index wizard list {}, keeping its previous entries: {}", title, e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void remove(String title) {
+        lists.put(title, Optional.empty());
+        version.incrementAndGet();
+        if (metrics.remove(title) != null) {
+            // Exact names, another list may be named after this one followed by a dot
+            for (String name : METRIC_NAMES) {
+                metricRegistry.remove(metricName(title, name));
+            }
+        }
+    }
+
+    /**
+     * Rebuilds a list held by the index, unless it was already indexed with its last modification,
+     * as on the node which made the change.
+     */
+    public void refresh(String title) {
+        final Lock lock = loadLocks.get(title);
+        lock.lock();
+        try {
+            final Optional<IndexedAlertList> current = lists.get(title);
+            if (current == null) {
+                return;
+            }
+            final AlertList alertList = alertListService.get().load(title);
+            if (alertList == null) {
+                remove(title);
+            } else if (!current.isPresent() || current.get().getLastModified() != lastModified(alertList)) {
+                lists.put(title, Optional.of(build(alertList)));
+            }
+        } catch (Exception e) {
+            LOG.warn("Unable to refresh wizard list {}, keeping its previous entries: {}", title, e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the lists currently held by the index
+     */
+    public List<IndexedAlertList> getLists() {
+        return lists.values().stream()
+                .filter(Optional::isPresent)
+                .map(Optional::get)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Reloads the lists which were modified or deleted since they were indexed,
+     * typically the ones restored from a snapshot while the node was down.
+     */
+    public void reconcile() {
+        for (IndexedAlertList indexed : getLists()) {
+            final String title = indexed.getTitle();
+            try {
+                final AlertList alertList = alertListService.get().load(title);
+                if (alertList == null) {
+                    remove(title);
+                } else if (lastModified(alertList) != indexed.getLastModified()) {
+                    put(alertList);
+                }
+            } catch (Exception e) {
+                LOG.warn("Unable to reconcile wizard list {}: {}", title, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Applies added and removed entries to a list already held by the index, without reloading it.
+     * The list takes the last modification date of the delta, so that it is not reloaded by {@link #reconcile()},
+     * and a delta already applied, as on the node which made the change, is skipped.
+     */
+    public void applyDelta(String title, long lastModified, Set<String> added, Set<String> removed) {
+        final Lock lock = loadLocks.get(title);
+        lock.lock();
+        try {
+            final Optional<IndexedAlertList> current = lists.get(title);
+            if (current == null || !current.isPresent() || current.get().getLastModified() == lastModified) {
+                return;
+            }
+            final IndexedAlertList alertList = current.get();
+            if (alertList.getEntries() instanceof OffHeapListMatcher) {
+                lists.put(title, Optional.of(applyOffHeapDelta(alertList, lastModified, added, removed)));
+                return;
+            }
+            final ImmutableSet.Builder<String> entries = ImmutableSet.builder();
+            for (String entry : alertList.getEntries()) {
+                if (!removed.contains(entry)) {
+                    entries.add(entry);
+                }
+            }
+            for (String entry : added) {
+                entries.add(interner.intern(entry));
+            }
+            lists.put(title, Optional.of(index(title, alertList.getKind(), lastModified, entries.build())));
+        } catch (Exception e) {
+            LOG.warn("Unable to apply changes to wizard list {}, keeping its previous entries: {}", title, e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Subscribe
+    public void handleAlertListEntriesChanged(AlertListEntriesChangedEvent event) {
+        applyDelta(event.getTitle(), event.getLastModified(), event.getAdded(), event.getRemoved());
+    }
+
+    @Subscribe
+    public void handleAlertListsChanged(AlertListsChangedEvent event) {
+        for (String title : event.getTitles()) {
+            refresh(title);
+        }
+    }
+
+    /**
+     * Merges the delta into the off heap entries, the Bloom filter of a plain list is kept and completed.
+     */
+    private IndexedAlertList applyOffHeapDelta(IndexedAlertList alertList, long lastModified,
+                                               Set<String> added, Set<String> removed) {
+        final String title = alertList.getTitle();
+        final AlertListKind kind = alertList.getKind();
+        final OffHeapListMatcher entries = ((OffHeapListMatcher) alertList.getEntries()).withDelta(added, removed);
+        final ListMatcher matcher;
+        if (kind == AlertListKind.PLAIN && alertList.getMatcher() instanceof BloomFilterListMatcher) {
+            matcher = ((BloomFilterListMatcher) alertList.getMatcher()).withEntries(added, entries);
+        } else {
+            matcher = matcher(kind, entries);
+        }
+        return new IndexedAlertList(title, version.incrementAndGet(), kind, lastModified, entries, matcher,
+                metrics(title));
+    }
+
+    private IndexedAlertList build(AlertList alertList) {
+        final AlertListKind kind = (alertList.getKind() == null) ? AlertListKind.PLAIN : alertList.getKind();
+        final String title = alertList.getTitle();
+        final AlertListSummary summary = alertListService.get().summary(title);
+        if (summary != null && summary.getEntryCount() != null && summary.getEntryCount() >= offHeapThreshold()) {
+            // Never held as a set of strings, the entries go off heap as soon as they are read
+            final OffHeapListMatcher.Builder entries = OffHeapListMatcher.builder();
+            AlertListUtils.parseEntries(kind, alertList.getLists()).forEach(entries::add);
+            alertListService.get().forEachEntry(title, entries::add);
+            return indexOffHeap(title, kind, lastModified(alertList), entries.build());
+        }
+        final ImmutableSet.Builder<String> entries = ImmutableSet.builder();
+        for (String entry : AlertListUtils.parseEntries(kind, alertList.getLists())) {
+            entries.add(interner.intern(entry));
+        }
+        alertListService.get().forEachEntry(alertList.getTitle(), entry -> entries.add(interner.intern(entry)));
+        return index(alertList.getTitle(), kind, lastModified(alertList), entries.build());
+    }
+
+    private static long lastModified(AlertList alertList) {
+        return (alertList.getLastModified() == null) ? 0 : alertList.getLastModified().getMillis();
+    }
+
+    private IndexedAlertList index(String title, AlertListKind kind, long lastModified, ImmutableSet<String> entries) {
+        if (entries.size() < offHeapThreshold()) {
+            return new IndexedAlertList(title, version.incrementAndGet(), kind, lastModified, entries,
+                    compile(kind, entries), metrics(title));
+        }
+        // Very large lists only keep their entries off heap, the on heap set is dropped once compiled
+        return indexOffHeap(title, kind, lastModified, new OffHeapListMatcher(entries));
+    }
+
+    private IndexedAlertList indexOffHeap(String title, AlertListKind kind, long lastModified,
+                                          OffHeapListMatcher entries) {
+        return new IndexedAlertList(title, version.incrementAndGet(), kind, lastModified, entries,
+                matcher(kind, entries), metrics(title));
+    }
+
+    private ListMatcher matcher(AlertListKind kind, OffHeapListMatcher entries) {
+        return (kind == AlertListKind.PLAIN) ? new BloomFilterListMatcher(entries, entries) : compile(kind, entries);
+    }
+
+    private int offHeapThreshold() {
+        final AlertWizardConfig config = clusterConfigService.get(AlertWizardConfig.class);
+        if (config == null || config.accessOffHeapThreshold() == null) {
+            return DEFAULT_OFF_HEAP_THRESHOLD;
+        }
+        return config.accessOffHeapThreshold();
+    }
+
+    private AlertListMetrics metrics(String title) {
+        return metrics.computeIfAbsent(title, key -> {
+            metricRegistry.gauge(metricName(key, "entries"),
+                    () -> (Gauge<Integer>) () -> current(key).map(IndexedAlertList::size).orElse(0));
+            metricRegistry.gauge(metricName(key, "memory"),
+                    () -> (Gauge<Long>) () -> current(key).map(IndexedAlertList::estimateFootprint).orElse(0L));
+            final AlertListMetrics listMetrics = new AlertListMetrics(metricRegistry.counter(metricName(key, "hits")),
+                    metricRegistry.counter(metricName(key, "misses")),
+                    metricRegistry.timer(metricName(key, "latency")));
+            metricRegistry.gauge(metricName(key, "lookups"), () -> (Gauge<Long>) listMetrics::getLookups);
+            metricRegistry.gauge(metricName(key, "hit-ratio"), () -> new RatioGauge() {
+                @Override
+                protected Ratio getRatio() {
+                    return Ratio.of(listMetrics.getHits(), listMetrics.getLookups());
+                }
+            });
+            return listMetrics;
+        });
+    }
+
+    private Optional<IndexedAlertList> current(String title) {
+        return lists.getOrDefault(title, Optional.empty());
+    }
+
+    private static String metricName(String title, String name) {
+        return MetricRegistry.name(METRICS_PREFIX, title, name);
+    }
+
+    private ListMatcher compile(AlertListKind kind, Set<String> entries) {
+        switch (kind) {
+            case CIDR:
+                return new CidrListMatcher(entries);
+            case PREFIX:
+                return new PrefixListMatcher(entries);
+            case KEYWORD:
+                return new AhoCorasickListMatcher(entries);
+            case REGEX:
+                return new RegexListMatcher(entries);
+            default:
+                return new ExactListMatcher(entries);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * graylog-plugin-alert-wizard Source Code
+ * Copyright (C) 2018-2020 - Airbus CyberSecurity (SAS) - All rights reserved
+ *
+ * This file is part of the graylog-plugin-alert-wizard GPL Source Code.
+ *
+ * graylog-plugin-alert-wizard Source Code is free software:
+ * you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * This code is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this code.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.airbus_cyber_security.graylog.list;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Timer;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookup metrics of one wizard list, registered by the {@link AlertListIndex}
+ * under com.airbus_cyber_security.graylog.lists.&lt;title&gt;.
+ * Matches are on the path of every message: hits and misses are counters, which only increment a LongAdder,
+ * lookups and rates are derived from them, and the latency is only timed for one lookup in {@value #SAMPLING}.
+ */
+public class AlertListMetrics {
+
+    static final int SAMPLING = 64;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Timer latency;
+
+    AlertListMetrics(Counter hits, Counter misses, Timer latency) {
+        this.hits = hits;
+        this.misses = misses;
+        this.latency = latency;
+    }
+
+    /**
+     * @return whether the latency of the current lookup should be recorded
+     */
+    boolean isSampled() {
+        return ThreadLocalRandom.current().nextInt(SAMPLING) == 0;
+    }
+
+    void record(boolean hit) {
+        if (hit) {
+            hits.inc();
+        } else {
+            misses.inc();
+        }
+    }
+
+    void recordLatency(long durationNanos) {
+        latency.update(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    long getLookups() {
+        return hits.getCount() + misses.getCount();
+    }
+
+    long getHits() {
+        return hits.getCount();
+    }
+}
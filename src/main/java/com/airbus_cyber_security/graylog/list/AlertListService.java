@@ -24,9 +24,14 @@ import com.airbus_cyber_security.graylog.list.bundles.ExportAlertList;
 import com.airbus_cyber_security.graylog.list.rest.models.requests.AlertListRequest;
 import com.mongodb.MongoException;
 import org.graylog2.database.NotFoundException;
+import org.joda.time.DateTime;
 
 import java.io.UnsupportedEncodingException;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public interface AlertListService {
     long count();
@@ -37,13 +42,67 @@ public interface AlertListService {
 
     List<AlertList> all();
 
+    /**
+     * @param page    first page is 1
+     * @param perPage 0 for all the lists
+     */
+    List<AlertListSummary> summaries(String sortField, boolean ascending, int page, int perPage);
+
     int destroy(String listTitle) throws MongoException, UnsupportedEncodingException;
 
     AlertList load(String title)  throws NotFoundException;
 
     boolean isPresent(String title);
 
+    /**
+     * @return the kind of a list, read without its entries, null if it does not exist
+     */
+    AlertListKind kind(String title);
+
     boolean isValidRequest(AlertListRequest request);
 
     boolean isValidImportRequest(ExportAlertList request);
+
+    /**
+     * Checks entries to add to a list as the ones of its inline text are checked, regular expressions being
+     * combined with the entries the list keeps.
+     *
+     * @param replace whether the added entries replace the bulk loaded ones
+     */
+    boolean isValidEntries(String title, Collection<String> added, Collection<String> removed, boolean replace);
+
+    /**
+     * @return the number of entries, inline and bulk loaded ones, and their size of a list, null if it does not exist
+     */
+    AlertListSummary summary(String title);
+
+    /**
+     * @return whether the list exists
+     */
+    boolean incrementUsage(String title);
+
+    /**
+     * @return whether the list exists and was used
+     */
+    boolean decrementUsage(String title);
+
+    /**
+     * Drops the cached responses of lists whose usage was changed by a request, on every node at once.
+     */
+    void usageChanged(Set<String> titles);
+
+    long addEntries(String title, Iterator<String> entries);
+
+    long removeEntries(String title, Iterator<String> entries);
+
+    long replaceEntries(String title, Iterator<String> entries);
+
+    /**
+     * @return the new last modification date of the list
+     */
+    DateTime updateEntries(String title, Set<String> added, Set<String> removed);
+
+    void copyEntries(String sourceTitle, String title);
+
+    void forEachEntry(String title, Consumer<String> consumer);
 }
@@ -21,15 +21,33 @@
 package com.airbus_cyber_security.graylog.list;
 
 import com.airbus_cyber_security.graylog.list.bundles.ExportAlertList;
+import com.airbus_cyber_security.graylog.list.events.AlertListUsageChangedEvent;
+import com.airbus_cyber_security.graylog.list.matchers.CidrListMatcher;
+import com.airbus_cyber_security.graylog.list.matchers.RegexListMatcher;
+import com.airbus_cyber_security.graylog.list.rest.AlertListResponseCache;
 import com.airbus_cyber_security.graylog.list.rest.models.requests.AlertListRequest;
+import com.airbus_cyber_security.graylog.list.utilities.AlertListUtils;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
+import com.mongodb.AggregationOptions;
 import com.mongodb.BasicDBObject;
+import com.mongodb.BulkWriteOperation;
+import com.mongodb.BulkWriteUpsert;
+import com.mongodb.Cursor;
 import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
 import org.graylog2.bindings.providers.MongoJackObjectMapperProvider;
 import org.graylog2.database.CollectionName;
 import org.graylog2.database.MongoConnection;
+import org.graylog2.events.ClusterEventBus;
+import org.joda.time.DateTime;
 import org.mongojack.DBCursor;
+import org.mongojack.DBProjection;
 import org.mongojack.DBQuery;
+import org.mongojack.DBSort;
+import org.mongojack.DBUpdate;
 import org.mongojack.JacksonDBCollection;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -37,24 +55,60 @@ import org.slf4j.LoggerFactory;
 import javax.inject.Inject;
 import javax.validation.ConstraintViolation;
 import javax.validation.Validator;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 public class AlertListServiceImpl implements AlertListService {
 
     private final JacksonDBCollection<AlertListImpl, String> coll;
     private final Validator validator;
+    private final AlertListIndex alertListIndex;
+    private final AlertListResponseCache responseCache;
+    private final ClusterEventBus clusterEventBus;
     private static final Logger LOG = LoggerFactory.getLogger(AlertListServiceImpl.class);
     private static final String TITLE = "title";
+    private static final String LISTS = "lists";
+    private static final String DEFLATED_LISTS = "deflated_lists";
+    private static final int COMPRESSION_THRESHOLD = 16 * 1024;
+    private static final String LAST_MODIFIED = "last_modified";
+    private static final String USAGE = "usage";
+    private static final String CREATED_AT = "created_at";
+    private static final String CREATOR_USER_ID = "creator_user_id";
+    private static final String DESCRIPTION = "description";
+    private static final String KIND = "kind";
+    private static final String ENTRY_COUNT = "entry_count";
+    private static final String SIZE = "size";
+    private static final String ENTRIES_COLLECTION = "wizard_list_entries";
+    private static final String LIST = "list";
+    private static final String VALUE = "value";
+    private static final int BATCH_SIZE = 1000;
+
+    private final DBCollection entries;
+    private final JacksonDBCollection<AlertListSummary, String> summaries;
 
     @Inject
     public AlertListServiceImpl(MongoConnection mongoConnection, MongoJackObjectMapperProvider mapperProvider,
-                                Validator validator) {
+                                Validator validator, AlertListIndex alertListIndex,
+                                AlertListResponseCache responseCache, ClusterEventBus clusterEventBus) {
         this.validator = validator;
+        this.alertListIndex = alertListIndex;
+        this.responseCache = responseCache;
+        this.clusterEventBus = clusterEventBus;
         final String collectionName = AlertListImpl.class.getAnnotation(CollectionName.class).value();
         final DBCollection dbCollection = mongoConnection.getDatabase().getCollection(collectionName);
         this.coll = JacksonDBCollection.wrap(dbCollection, AlertListImpl.class, String.class, mapperProvider.get());
+        this.summaries = JacksonDBCollection.wrap(dbCollection, AlertListSummary.class, String.class, mapperProvider.get());
         this.coll.createIndex(new BasicDBObject(TITLE, 1), new BasicDBObject("unique", true));
+        this.entries = mongoConnection.getDatabase().getCollection(ENTRIES_COLLECTION);
+        this.entries.createIndex(new BasicDBObject(LIST, 1).append(VALUE, 1), new BasicDBObject("unique", true));
     }
 
     @Override
@@ -69,7 +123,11 @@ public class AlertListServiceImpl implements AlertListService {
 
             final Set<ConstraintViolation<AlertListImpl>> violations = validator.validate(listImpl);
             if (violations.isEmpty()) {
-                return coll.insert(listImpl).getSavedObject();
+                final AlertListImpl saved = inflate(coll.insert(deflate(listImpl)).getSavedObject());
+                updateStatistics(saved);
+                alertListIndex.put(saved);
+                responseCache.invalidate(saved.getTitle());
+                return saved;
             } else {
                 throw new IllegalArgumentException("Specified object failed validation: " + violations);
             }
@@ -88,8 +146,28 @@ public class AlertListServiceImpl implements AlertListService {
             final Set<ConstraintViolation<AlertListImpl>> violations = validator.validate(listImpl);
             if (violations.isEmpty()) {
 
-                return coll.findAndModify(DBQuery.is(TITLE, title), new BasicDBObject(), new BasicDBObject(),
-                        false, listImpl, true, false);
+                // The usage is maintained by incrementUsage and decrementUsage, the stored one is kept
+                final DBUpdate.Builder update = setLists(Strings.nullToEmpty(listImpl.getLists()))
+                        .set(TITLE, listImpl.getTitle())
+                        .set(CREATED_AT, listImpl.getCreatedAt())
+                        .set(CREATOR_USER_ID, listImpl.getCreatorUserId())
+                        .set(LAST_MODIFIED, listImpl.getLastModified())
+                        .set(DESCRIPTION, listImpl.getDescription())
+                        .set(KIND, listImpl.getKind());
+                final AlertListImpl updated = inflate(coll.findAndModify(DBQuery.is(TITLE, title), new BasicDBObject(),
+                        new BasicDBObject(), false, update, true, false));
+                if (!title.equals(listImpl.getTitle())) {
+                    entries.updateMulti(new BasicDBObject(LIST, title),
+                            new BasicDBObject("$set", new BasicDBObject(LIST, listImpl.getTitle())));
+                    alertListIndex.remove(title);
+                }
+                if (updated != null) {
+                    updateStatistics(updated);
+                    alertListIndex.put(updated);
+                }
+                responseCache.invalidate(title);
+                responseCache.invalidate(listImpl.getTitle());
+                return updated;
 
             } else {
                 throw new IllegalArgumentException("Specified object failed validation: " + violations);
@@ -107,14 +185,32 @@ public class AlertListServiceImpl implements AlertListService {
     }
 
     @Override
-    public int destroy(String listTitle) {
+    public List<AlertListSummary> summaries(String sortField, boolean ascending, int page, int perPage) {
+        final DBSort.SortBuilder sort = ascending ? DBSort.asc(sortField) : DBSort.desc(sortField);
+        DBCursor<AlertListSummary> cursor = summaries.find(DBQuery.empty(), DBProjection.exclude(LISTS, DEFLATED_LISTS))
+                .sort(sort);
+        if (perPage > 0) {
+            cursor = cursor.skip(perPage * Math.max(0, page - 1)).limit(perPage);
+        }
+        try {
+            return cursor.toArray();
+        } finally {
+            cursor.close();
+        }
+    }
 
-        return coll.remove(DBQuery.is(TITLE, listTitle)).getN();
+    @Override
+    public int destroy(String listTitle) {
+        final int removed = coll.remove(DBQuery.is(TITLE, listTitle)).getN();
+        entries.remove(new BasicDBObject(LIST, listTitle));
+        alertListIndex.remove(listTitle);
+        responseCache.invalidate(listTitle);
+        return removed;
     }
 
     @Override
     public AlertList load(String listTitle) {
-        return coll.findOne(DBQuery.is(TITLE, listTitle));
+        return inflate(coll.findOne(DBQuery.is(TITLE, listTitle)));
     }
 
     @Override
@@ -128,22 +224,359 @@ public class AlertListServiceImpl implements AlertListService {
 
     private List<AlertList> toAbstractListType(List<AlertListImpl> lists) {
         final List<AlertList> result = Lists.newArrayListWithCapacity(lists.size());
-        result.addAll(lists);
+        for (AlertListImpl list : lists) {
+            result.add(inflate(list));
+        }
 
         return result;
     }
 
+    /**
+     * Large lists are stored deflated, smaller ones are kept as plain text which is easier to inspect.
+     */
+    private static AlertListImpl deflate(AlertListImpl list) {
+        if (list.getLists() == null || list.getLists().length() < COMPRESSION_THRESHOLD) {
+            return list;
+        }
+        return list.withLists(null, AlertListUtils.deflate(list.getLists()));
+    }
+
+    private static AlertListImpl inflate(AlertListImpl list) {
+        if (list == null || list.getDeflatedLists() == null) {
+            return list;
+        }
+        return list.withLists(AlertListUtils.inflate(list.getDeflatedLists()), null);
+    }
+
+    private static DBUpdate.Builder setLists(String lists) {
+        if (lists.length() < COMPRESSION_THRESHOLD) {
+            return DBUpdate.set(LISTS, lists).unset(DEFLATED_LISTS);
+        }
+        return DBUpdate.set(DEFLATED_LISTS, AlertListUtils.deflate(lists)).unset(LISTS);
+    }
+
     private boolean isValidTitle(String title) {
         return !(title == null || title.isEmpty());
     }
 
+    private boolean isValidEntries(AlertListKind kind, String lists) {
+        return isValidEntries(kind, AlertListUtils.parseEntries(kind, lists));
+    }
+
+    private boolean isValidEntries(AlertListKind kind, Collection<String> entries) {
+        if (kind == AlertListKind.CIDR) {
+            for (String entry : entries) {
+                if (!CidrListMatcher.isValidEntry(entry)) {
+                    LOG.debug("Invalid network {}", entry);
+                    return false;
+                }
+            }
+        } else if (kind == AlertListKind.REGEX) {
+            if (!RegexListMatcher.isValidEntries(entries)) {
+                LOG.debug("Invalid regular expressions {}", entries);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isValidEntries(String title, Collection<String> added, Collection<String> removed, boolean replace) {
+        final AlertListKind kind = kind(title);
+        if (kind == null) {
+            return false;
+        }
+        final Set<String> entries = new LinkedHashSet<>();
+        // Regular expressions are compiled together, the added ones must combine with the kept ones
+        if (kind == AlertListKind.REGEX) {
+            entries.addAll(AlertListUtils.parseEntries(kind, inlineLists(title)));
+            if (!replace) {
+                forEachEntry(title, entries::add);
+            }
+            entries.removeAll(removed);
+        }
+        for (String entry : added) {
+            final String value = AlertListUtils.normalize(kind, entry);
+            if (!value.isEmpty()) {
+                entries.add(value);
+            }
+        }
+        return isValidEntries(kind, entries);
+    }
+
+    @Override
+    public AlertListSummary summary(String title) {
+        return summaries.findOne(DBQuery.is(TITLE, title), DBProjection.exclude(LISTS, DEFLATED_LISTS));
+    }
+
+    @Override
+    public AlertListKind kind(String title) {
+        final DBObject list = coll.getDbCollection().findOne(new BasicDBObject(TITLE, title), new BasicDBObject(KIND, 1));
+        if (list == null) {
+            return null;
+        }
+        final Object kind = list.get(KIND);
+        return (kind == null) ? AlertListKind.PLAIN : AlertListKind.valueOf(kind.toString());
+    }
+
+    private AlertListKind kindOf(String title) {
+        final AlertListKind kind = kind(title);
+        return (kind == null) ? AlertListKind.PLAIN : kind;
+    }
+
+    /**
+     * @return the inline text of a list, read without the other fields, null if it does not exist
+     */
+    private String inlineLists(String title) {
+        final DBObject list = coll.getDbCollection().findOne(new BasicDBObject(TITLE, title),
+                new BasicDBObject(LISTS, 1).append(DEFLATED_LISTS, 1));
+        if (list == null) {
+            return null;
+        }
+        final Object deflatedLists = list.get(DEFLATED_LISTS);
+        return (deflatedLists instanceof byte[]) ? AlertListUtils.inflate((byte[]) deflatedLists) : (String) list.get(LISTS);
+    }
+
     @Override
     public boolean isValidRequest(AlertListRequest request){
-        return (isValidTitle(request.getTitle()));
+        return (isValidTitle(request.getTitle()) &&
+                isValidEntries(request.getKind(), request.getLists()));
     }
 
     @Override
     public boolean isValidImportRequest(ExportAlertList request){
-        return (isValidTitle(request.getTitle()));
+        final Set<String> entries = new LinkedHashSet<>(AlertListUtils.parseEntries(request.getKind(), request.getLists()));
+        if (request.getEntries() != null) {
+            for (String entry : request.getEntries()) {
+                final String value = AlertListUtils.normalize(request.getKind(), entry);
+                if (!value.isEmpty()) {
+                    entries.add(value);
+                }
+            }
+        }
+        return (isValidTitle(request.getTitle()) &&
+                isValidEntries(request.getKind(), entries));
+    }
+
+    @Override
+    public boolean incrementUsage(String title) {
+        return coll.update(DBQuery.is(TITLE, title), DBUpdate.inc(USAGE, 1)).getN() > 0;
+    }
+
+    @Override
+    public boolean decrementUsage(String title) {
+        return coll.update(DBQuery.is(TITLE, title).greaterThan(USAGE, 0), DBUpdate.inc(USAGE, -1)).getN() > 0;
+    }
+
+    @Override
+    public long addEntries(String title, Iterator<String> values) {
+        final long count = writeEntries(title, values, true);
+        touch(title);
+        alertListIndex.refresh(title);
+        return count;
+    }
+
+    @Override
+    public long removeEntries(String title, Iterator<String> values) {
+        final long count = writeEntries(title, values, false);
+        touch(title);
+        alertListIndex.refresh(title);
+        return count;
+    }
+
+    @Override
+    public long replaceEntries(String title, Iterator<String> values) {
+        entries.remove(new BasicDBObject(LIST, title));
+        return addEntries(title, values);
+    }
+
+    @Override
+    public DateTime updateEntries(String title, Set<String> added, Set<String> removed) {
+        final AlertListKind kind = kindOf(title);
+        final EntryStatistics delta = new EntryStatistics();
+        upsertEntries(title, kind, added, delta);
+        deleteEntries(title, kind, removed, delta);
+        if (!removed.isEmpty()) {
+            removeInlineEntries(title, kind, removed, delta);
+        }
+        final DateTime lastModified = touch(title, delta);
+        alertListIndex.applyDelta(title, lastModified.getMillis(), added, removed);
+        return lastModified;
+    }
+
+    @Override
+    public void copyEntries(String sourceTitle, String title) {
+        try (com.mongodb.DBCursor cursor = findEntries(sourceTitle)) {
+            addEntries(title, Iterators.transform(cursor.iterator(), entry -> (String) entry.get(VALUE)));
+        }
+    }
+
+    @Override
+    public void forEachEntry(String title, Consumer<String> consumer) {
+        try (com.mongodb.DBCursor cursor = findEntries(title)) {
+            while (cursor.hasNext()) {
+                consumer.accept((String) cursor.next().get(VALUE));
+            }
+        }
+    }
+
+    @Override
+    public void usageChanged(Set<String> titles) {
+        if (titles.isEmpty()) {
+            return;
+        }
+        titles.forEach(responseCache::invalidate);
+        clusterEventBus.post(AlertListUsageChangedEvent.create(titles));
+    }
+
+    private DateTime touch(String title) {
+        final DateTime lastModified = DateTime.now();
+        coll.update(DBQuery.is(TITLE, title), DBUpdate.set(LAST_MODIFIED, lastModified));
+        final AlertList alertList = load(title);
+        if (alertList != null) {
+            updateStatistics(alertList);
+        }
+        responseCache.invalidate(title);
+        return lastModified;
+    }
+
+    /**
+     * Sets the last modification date and applies the changes of the statistics, without reading the list.
+     */
+    private DateTime touch(String title, EntryStatistics delta) {
+        final DateTime lastModified = DateTime.now();
+        final DBUpdate.Builder update = DBUpdate.set(LAST_MODIFIED, lastModified)
+                .inc(ENTRY_COUNT, Math.toIntExact(delta.entryCount))
+                .inc(SIZE, Math.toIntExact(delta.size));
+        if (coll.update(DBQuery.is(TITLE, title).exists(ENTRY_COUNT), update).getN() == 0) {
+            // Statistics never computed, lists stored before they were introduced
+            return touch(title);
+        }
+        responseCache.invalidate(title);
+        return lastModified;
+    }
+
+    /**
+     * Stores the number of entries and their size in bytes, inline and bulk loaded ones,
+     * so that they can be listed without reading the entries.
+     */
+    private void updateStatistics(AlertList alertList) {
+        final String title = alertList.getTitle();
+        long entryCount = AlertListUtils.parseEntries(alertList.getKind(), alertList.getLists()).size();
+        long size = (alertList.getLists() == null) ? 0 : alertList.getLists().getBytes(StandardCharsets.UTF_8).length;
+        final List<DBObject> pipeline = ImmutableList.of(
+                new BasicDBObject("$match", new BasicDBObject(LIST, title)),
+                new BasicDBObject("$group", new BasicDBObject("_id", null)
+                        .append(ENTRY_COUNT, new BasicDBObject("$sum", 1))
+                        .append(SIZE, new BasicDBObject("$sum", new BasicDBObject("$strLenBytes", "$" + VALUE)))));
+        try (Cursor cursor = entries.aggregate(pipeline, AggregationOptions.builder().build())) {
+            if (cursor.hasNext()) {
+                final DBObject statistics = cursor.next();
+                entryCount += ((Number) statistics.get(ENTRY_COUNT)).longValue();
+                size += ((Number) statistics.get(SIZE)).longValue();
+            }
+        }
+        coll.update(DBQuery.is(TITLE, title), DBUpdate.set(ENTRY_COUNT, entryCount).set(SIZE, size));
+    }
+
+    private void removeInlineEntries(String title, AlertListKind kind, Set<String> removed, EntryStatistics delta) {
+        final String inlineLists = inlineLists(title);
+        final Set<String> inlineEntries = AlertListUtils.parseEntries(kind, inlineLists);
+        if (Collections.disjoint(inlineEntries, removed)) {
+            return;
+        }
+        final String lists = inlineEntries.stream()
+                .filter(entry -> !removed.contains(entry))
+                .collect(Collectors.joining(AlertListUtils.separator(kind)));
+        coll.update(DBQuery.is(TITLE, title), setLists(lists));
+        delta.entryCount -= inlineEntries.stream().filter(removed::contains).count();
+        delta.size += lists.getBytes(StandardCharsets.UTF_8).length - inlineLists.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    /**
+     * Adds bulk entries, counting the ones which were not already in the list.
+     */
+    private void upsertEntries(String title, AlertListKind kind, Set<String> values, EntryStatistics delta) {
+        final List<String> normalized = normalize(kind, values);
+        for (List<String> batch : Lists.partition(normalized, BATCH_SIZE)) {
+            final BulkWriteOperation bulk = entries.initializeOrderedBulkOperation();
+            for (String value : batch) {
+                final BasicDBObject entry = new BasicDBObject(LIST, title).append(VALUE, value);
+                bulk.find(entry).upsert().replaceOne(entry);
+            }
+            for (BulkWriteUpsert upsert : bulk.execute().getUpserts()) {
+                delta.add(batch.get(upsert.getIndex()), 1);
+            }
+        }
+    }
+
+    /**
+     * Removes bulk entries, counting the ones which were in the list.
+     */
+    private void deleteEntries(String title, AlertListKind kind, Set<String> values, EntryStatistics delta) {
+        for (String value : normalize(kind, values)) {
+            if (entries.findAndRemove(new BasicDBObject(LIST, title).append(VALUE, value)) != null) {
+                delta.add(value, -1);
+            }
+        }
+    }
+
+    private static List<String> normalize(AlertListKind kind, Set<String> values) {
+        final List<String> normalized = new ArrayList<>(values.size());
+        for (String value : values) {
+            final String entry = AlertListUtils.normalize(kind, value);
+            if (!entry.isEmpty()) {
+                normalized.add(entry);
+            }
+        }
+        return normalized;
+    }
+
+    private com.mongodb.DBCursor findEntries(String title) {
+        return entries.find(new BasicDBObject(LIST, title), new BasicDBObject(VALUE, 1)).batchSize(BATCH_SIZE);
+    }
+
+    private long writeEntries(String title, Iterator<String> values, boolean add) {
+        long count = 0;
+        int pending = 0;
+        final AlertListKind kind = kindOf(title);
+        BulkWriteOperation bulk = entries.initializeUnorderedBulkOperation();
+        while (values.hasNext()) {
+            final String value = AlertListUtils.normalize(kind, values.next());
+            if (value.isEmpty()) {
+                continue;
+            }
+            final BasicDBObject entry = new BasicDBObject(LIST, title).append(VALUE, value);
+            if (add) {
+                bulk.find(entry).upsert().replaceOne(entry);
+            } else {
+                bulk.find(entry).remove();
+            }
+            count++;
+            pending++;
+            if (pending == BATCH_SIZE) {
+                bulk.execute();
+                bulk = entries.initializeUnorderedBulkOperation();
+                pending = 0;
+            }
+        }
+        if (pending > 0) {
+            bulk.execute();
+        }
+        LOG.debug("{} entries of list {} processed", count, title);
+        return count;
+    }
+
+    /**
+     * Changes of the number of entries of a list and of their size in bytes.
+     */
+    private static final class EntryStatistics {
+        private long entryCount;
+        private long size;
+
+        private void add(String value, int sign) {
+            entryCount += sign;
+            size += sign * value.getBytes(StandardCharsets.UTF_8).length;
+        }
     }
 }
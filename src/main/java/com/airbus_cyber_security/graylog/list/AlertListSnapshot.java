@@ -0,0 +1,172 @@
+/*
+ * graylog-plugin-alert-wizard Source Code
+ * Copyright (C) 2018-2020 - Airbus CyberSecurity (SAS) - All rights reserved
+ *
+ * This file is part of the graylog-plugin-alert-wizard GPL Source Code.
+ *
+ * graylog-plugin-alert-wizard Source Code is free software:
+ * you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * This code is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this code.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.airbus_cyber_security.graylog.list;
+
+import com.airbus_cyber_security.graylog.list.matchers.OffHeapListMatcher;
+import com.google.common.collect.ImmutableSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * Binary snapshot of the lists held by the {@link AlertListIndex}, kept in the data directory of the node
+ * so that a restarted node can match messages against its lists without waiting for the database.
+ * The file starts with a magic number and a format version, followed by the lists. Each list is written as
+ * its title, kind, last modification time and entries, strings being length-prefixed UTF-8 bytes.
+ */
+@Singleton
+public class AlertListSnapshot {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AlertListSnapshot.class);
+
+    private static final int MAGIC = 0x57495a4c;
+    private static final int FORMAT_VERSION = 1;
+    private static final String DIRECTORY = "alert-wizard";
+    private static final String FILE_NAME = "lists.snapshot";
+
+    private final Path file;
+
+    @Inject
+    public AlertListSnapshot(@Named("data_dir") Path dataDir) {
+        this.file = dataDir.resolve(DIRECTORY).resolve(FILE_NAME);
+    }
+
+    public void write(Collection<IndexedAlertList> lists) throws IOException {
+        Files.createDirectories(file.getParent());
+        final Path temporaryFile = file.resolveSibling(FILE_NAME + ".tmp");
+        try (OutputStream stream = Files.newOutputStream(temporaryFile);
+             DataOutputStream output = new DataOutputStream(new BufferedOutputStream(stream))) {
+            output.writeInt(MAGIC);
+            output.writeInt(FORMAT_VERSION);
+            output.writeInt(lists.size());
+            for (IndexedAlertList list : lists) {
+                writeString(output, list.getTitle());
+                writeString(output, list.getKind().name());
+                output.writeLong(list.getLastModified());
+                output.writeInt(list.size());
+                if (list.getEntries() instanceof OffHeapListMatcher) {
+                    // Same encoding as the snapshot, copied without decoding the entries
+                    ((OffHeapListMatcher) list.getEntries()).writeTo(output);
+                } else {
+                    for (String entry : list.getEntries()) {
+                        writeString(output, entry);
+                    }
+                }
+            }
+        }
+        Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        LOG.debug("Wrote snapshot of {} wizard lists to {}", lists.size(), file);
+    }
+
+    /**
+     * Decodes the lists of the snapshot one at a time, so that only one of them is held on heap at once.
+     *
+     * @return the number of lists read, 0 if there is no usable snapshot
+     */
+    public int read(Consumer<Entry> consumer) {
+        if (!Files.isRegularFile(file)) {
+            return 0;
+        }
+        int read = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                LOG.warn("Ignoring wizard lists snapshot {} written in an unknown format", file);
+                return 0;
+            }
+            final int count = buffer.getInt();
+            for (int i = 0; i < count; i++) {
+                final String title = readString(buffer);
+                final AlertListKind kind = AlertListKind.valueOf(readString(buffer));
+                final long lastModified = buffer.getLong();
+                final int size = buffer.getInt();
+                final ImmutableSet.Builder<String> entries = ImmutableSet.builderWithExpectedSize(size);
+                for (int j = 0; j < size; j++) {
+                    entries.add(readString(buffer));
+                }
+                consumer.accept(new Entry(title, kind, lastModified, entries.build()));
+                read++;
+            }
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Unable to read wizard lists snapshot {}: {}", file, e.getMessage());
+        }
+        return read;
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        final byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public static class Entry {
+        private final String title;
+        private final AlertListKind kind;
+        private final long lastModified;
+        private final ImmutableSet<String> entries;
+
+        Entry(String title, AlertListKind kind, long lastModified, ImmutableSet<String> entries) {
+            this.title = title;
+            this.kind = kind;
+            this.lastModified = lastModified;
+            this.entries = entries;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public AlertListKind getKind() {
+            return kind;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        public ImmutableSet<String> getEntries() {
+            return entries;
+        }
+    }
+}
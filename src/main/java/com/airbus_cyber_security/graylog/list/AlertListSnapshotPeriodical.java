@@ -0,0 +1,109 @@
+/*
+ * graylog-plugin-alert-wizard Source Code
+ * Copyright (C) 2018-2020 - Airbus CyberSecurity (SAS) - All rights reserved
+ *
+ * This file is part of the graylog-plugin-alert-wizard GPL Source Code.
+ *
+ * graylog-plugin-alert-wizard Source Code is free software:
+ * you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * This code is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this code.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.airbus_cyber_security.graylog.list;
+
+import org.graylog2.plugin.periodical.Periodical;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+
+/**
+ * Reconciles the lists restored from the node snapshot with the database once the node is started,
+ * then writes a new snapshot whenever the lists held by the {@link AlertListIndex} change.
+ */
+public class AlertListSnapshotPeriodical extends Periodical {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AlertListSnapshotPeriodical.class);
+
+    private final AlertListIndex alertListIndex;
+    private final AlertListSnapshot snapshot;
+    private boolean reconciled = false;
+    private long writtenVersion = -1;
+
+    @Inject
+    public AlertListSnapshotPeriodical(AlertListIndex alertListIndex, AlertListSnapshot snapshot) {
+        this.alertListIndex = alertListIndex;
+        this.snapshot = snapshot;
+    }
+
+    @Override
+    public void doRun() {
+        // Writing a snapshot before the previous one is fully restored would lose lists
+        if (!alertListIndex.isRestored()) {
+            return;
+        }
+        if (!reconciled) {
+            alertListIndex.reconcile();
+            reconciled = true;
+        }
+        final long version = alertListIndex.getVersion();
+        if (version == writtenVersion) {
+            return;
+        }
+        try {
+            snapshot.write(alertListIndex.getLists());
+            writtenVersion = version;
+        } catch (Exception e) {
+            LOG.warn("Unable to write the wizard lists snapshot: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public boolean runsForever() {
+        return false;
+    }
+
+    @Override
+    public boolean stopOnGracefulShutdown() {
+        return true;
+    }
+
+    @Override
+    public boolean masterOnly() {
+        return false;
+    }
+
+    @Override
+    public boolean startOnThisNode() {
+        return true;
+    }
+
+    @Override
+    public boolean isDaemon() {
+        return true;
+    }
+
+    @Override
+    public int getInitialDelaySeconds() {
+        return 10;
+    }
+
+    @Override
+    public int getPeriodSeconds() {
+        return 60;
+    }
+
+    @Override
+    protected Logger getLogger() {
+        return LOG;
+    }
+}
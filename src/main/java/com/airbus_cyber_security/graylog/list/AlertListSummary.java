@@ -0,0 +1,89 @@
+/*
+ * graylog-plugin-alert-wizard Source Code
+ * Copyright (C) 2018-2020 - Airbus CyberSecurity (SAS) - All rights reserved
+ *
+ * This file is part of the graylog-plugin-alert-wizard GPL Source Code.
+ *
+ * graylog-plugin-alert-wizard Source Code is free software:
+ * you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * This code is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this code.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.airbus_cyber_security.graylog.list;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.auto.value.AutoValue;
+import org.joda.time.DateTime;
+
+import javax.annotation.Nullable;
+
+/**
+ * Metadata of a wizard list, read from the database without the entries of the list.
+ * The entry count and size are stored when the list is written, they are missing on lists
+ * which were not written since they were introduced.
+ */
+@AutoValue
+@JsonAutoDetect
+@JsonIgnoreProperties(ignoreUnknown = true)
+public abstract class AlertListSummary {
+
+    @JsonProperty("title")
+    public abstract String getTitle();
+
+    @JsonProperty("created_at")
+    @Nullable
+    public abstract DateTime getCreatedAt();
+
+    @JsonProperty("creator_user_id")
+    @Nullable
+    public abstract String getCreatorUserId();
+
+    @JsonProperty("last_modified")
+    @Nullable
+    public abstract DateTime getLastModified();
+
+    @JsonProperty("description")
+    @Nullable
+    public abstract String getDescription();
+
+    @JsonProperty("usage")
+    public abstract int getUsage();
+
+    @JsonProperty("kind")
+    @Nullable
+    public abstract AlertListKind getKind();
+
+    @JsonProperty("entry_count")
+    @Nullable
+    public abstract Long getEntryCount();
+
+    @JsonProperty("size")
+    @Nullable
+    public abstract Long getSize();
+
+    @JsonCreator
+    public static AlertListSummary create(@JsonProperty("title") String title,
+                                          @JsonProperty("created_at") DateTime createdAt,
+                                          @JsonProperty("creator_user_id") String creatorUserId,
+                                          @JsonProperty("last_modified") DateTime lastModified,
+                                          @JsonProperty("description") String description,
+                                          @JsonProperty("usage") int usage,
+                                          @JsonProperty("kind") AlertListKind kind,
+                                          @JsonProperty("entry_count") Long entryCount,
+                                          @JsonProperty("size") Long size) {
+        return new AutoValue_AlertListSummary(title, createdAt, creatorUserId, lastModified, description, usage,
+                kind, entryCount, size);
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * graylog-plugin-alert-wizard Source Code
+ * Copyright (C) 2018-2020 - Airbus CyberSecurity (SAS) - All rights reserved
+ *
+ * This file is part of the graylog-plugin-alert-wizard GPL Source Code.
+ *
+ * graylog-plugin-alert-wizard Source Code is free software:
+ * you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * This code is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this code.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.airbus_cyber_security.graylog.list;
+
+import com.airbus_cyber_security.graylog.list.matchers.AhoCorasickListMatcher;
+import com.airbus_cyber_security.graylog.list.matchers.ListMatcher;
+import com.airbus_cyber_security.graylog.list.matchers.OffHeapListMatcher;
+import com.airbus_cyber_security.graylog.list.utilities.AlertListUtils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Set;
+
+/**
+ * Parsed content of a wizard list, as held by the {@link AlertListIndex}.
+ */
+public class IndexedAlertList {
+
+    private static final Logger LOG = LoggerFactory.getLogger(IndexedAlertList.class);
+
+    // String header, its array header and the set slot referencing it
+    private static final long ENTRY_OVERHEAD = 64;
+
+    private final String title;
+    private final long version;
+    private final AlertListKind kind;
+    private final long lastModified;
+    private final Set<String> entries;
+    private final ListMatcher matcher;
+    private final AlertListMetrics metrics;
+    private volatile ListMatcher keywordMatcher;
+    private volatile long footprint = -1;
+    private volatile boolean offHeapWarned;
+
+    IndexedAlertList(String title, long version, AlertListKind kind, long lastModified, Set<String> entries,
+                     ListMatcher matcher, AlertListMetrics metrics) {
+        this.title = title;
+        this.version = version;
+        this.kind = kind;
+        this.lastModified = lastModified;
+        this.entries = entries;
+        this.matcher = matcher;
+        this.metrics = metrics;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public AlertListKind getKind() {
+        return kind;
+    }
+
+    /**
+     * @return the last modification time of the stored list this one was built from, in milliseconds
+     */
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    public Set<String> getEntries() {
+        return entries;
+    }
+
+    ListMatcher getMatcher() {
+        return matcher;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public boolean contains(Object value) {
+        return value != null && match(matcher, value);
+    }
+
+    /**
+     * Checks whether the value contains any of the entries, whatever the kind of the list.
+     * Regular expressions are always searched anywhere in the value.
+     * Lists stored off heap are never searched this way, as their keyword matcher would bring all their entries
+     * back on heap: they contain no value.
+     */
+    public boolean containsAny(Object value) {
+        if (value == null) {
+            return false;
+        }
+        final ListMatcher listMatcher = keywordMatcher();
+        if (listMatcher == null) {
+            if (!offHeapWarned) {
+                offHeapWarned = true;
+                LOG.warn("Wizard list {} has too many entries to be searched in values, only exact lookups are supported", title);
+            }
+            return false;
+        }
+        return match(listMatcher, value);
+    }
+
+    /**
+     * @return a rough estimate of the memory used by the entries of the list, in bytes
+     */
+    public long estimateFootprint() {
+        if (entries instanceof OffHeapListMatcher) {
+            return ((OffHeapListMatcher) entries).footprint();
+        }
+        long result = footprint;
+        if (result < 0) {
+            result = 0;
+            for (String entry : entries) {
+                result += ENTRY_OVERHEAD + 2L * entry.length();
+            }
+            footprint = result;
+        }
+        return result;
+    }
+
+    private boolean match(ListMatcher listMatcher, Object value) {
+        final String normalized = AlertListUtils.normalize(kind, value.toString());
+        final boolean result;
+        if (metrics.isSampled()) {
+            final long start = System.nanoTime();
+            result = listMatcher.matches(normalized);
+            metrics.recordLatency(System.nanoTime() - start);
+        } else {
+            result = listMatcher.matches(normalized);
+        }
+        metrics.record(result);
+        return result;
+    }
+
+    private ListMatcher keywordMatcher() {
+        if (kind == AlertListKind.KEYWORD || kind == AlertListKind.REGEX) {
+            return matcher;
+        }
+        if (entries instanceof OffHeapListMatcher) {
+            return null;
+        }
+        ListMatcher result = keywordMatcher;
+        if (result == null) {
+            synchronized (this) {
+                result = keywordMatcher;
+                if (result == null) {
+                    result = new AhoCorasickListMatcher(entries);
+                    keywordMatcher = result;
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -26,6 +26,7 @@ import com.google.common.collect.Lists;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public class AlertListExporter {
@@ -44,11 +45,15 @@ public class AlertListExporter {
         for (String title : titles) {
             try {
                 final AlertList list = alertListService.load(title);
+                final List<String> entries = new ArrayList<>();
+                alertListService.forEachEntry(title, entries::add);
 
                 listAlertLists.add(ExportAlertList.create(
                         title,
                         list.getDescription(),
-                        list.getLists()));
+                        list.getLists(),
+                        list.getKind(),
+                        entries.isEmpty() ? null : entries));
 
             }catch(Exception e) {
                 /* Can't find stream, condition or notification */
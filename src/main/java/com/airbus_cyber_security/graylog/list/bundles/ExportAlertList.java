@@ -20,13 +20,16 @@
 
 package com.airbus_cyber_security.graylog.list.bundles;
 
+import com.airbus_cyber_security.graylog.list.AlertListKind;
 import com.fasterxml.jackson.annotation.JsonAutoDetect;
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.auto.value.AutoValue;
 
 import javax.annotation.Nullable;
 import javax.validation.constraints.NotNull;
+import java.util.List;
 
 
 @AutoValue
@@ -45,10 +48,24 @@ public abstract class ExportAlertList {
     @Nullable
     public abstract String getLists();
 
+    @JsonProperty("kind")
+    @Nullable
+    public abstract AlertListKind getKind();
+
+    /**
+     * Bulk loaded entries of the list, one per element.
+     */
+    @JsonProperty("entries")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @Nullable
+    public abstract List<String> getEntries();
+
     @JsonCreator
     public static ExportAlertList create(@JsonProperty("title") String title,
                                          @JsonProperty("description") String description,
-                                         @JsonProperty("lists") String lists) {
-        return new AutoValue_ExportAlertList(title, description, lists);
+                                         @JsonProperty("lists") String lists,
+                                         @JsonProperty("kind") AlertListKind kind,
+                                         @JsonProperty("entries") List<String> entries) {
+        return new AutoValue_ExportAlertList(title, description, lists, kind, entries);
     }
 }
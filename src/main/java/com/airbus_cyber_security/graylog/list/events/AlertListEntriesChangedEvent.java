@@ -0,0 +1,62 @@
+/*
+ * graylog-plugin-alert-wizard Source Code
+ * Copyright (C) 2018-2020 - Airbus CyberSecurity (SAS) - All rights reserved
+ *
+ * This file is part of the graylog-plugin-alert-wizard GPL Source Code.
+ *
+ * graylog-plugin-alert-wizard Source Code is free software:
+ * you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * This code is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this code.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.airbus_cyber_security.graylog.list.events;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableSet;
+
+import java.util.Set;
+
+/**
+ * Posted on the cluster event bus when entries are added to or removed from a wizard list,
+ * so that the other nodes apply the delta without reloading the whole list.
+ */
+@AutoValue
+@JsonAutoDetect
+public abstract class AlertListEntriesChangedEvent {
+
+    @JsonProperty("title")
+    public abstract String getTitle();
+
+    @JsonProperty("added")
+    public abstract ImmutableSet<String> getAdded();
+
+    @JsonProperty("removed")
+    public abstract ImmutableSet<String> getRemoved();
+
+    /**
+     * Last modification date of the list once the entries were changed, in milliseconds.
+     */
+    @JsonProperty("last_modified")
+    public abstract long getLastModified();
+
+    @JsonCreator
+    public static AlertListEntriesChangedEvent create(@JsonProperty("title") String title,
+                                                      @JsonProperty("added") Set<String> added,
+                                                      @JsonProperty("removed") Set<String> removed,
+                                                      @JsonProperty("last_modified") long lastModified) {
+        return new AutoValue_AlertListEntriesChangedEvent(title, ImmutableSet.copyOf(added), ImmutableSet.copyOf(removed),
+                lastModified);
+    }
+}
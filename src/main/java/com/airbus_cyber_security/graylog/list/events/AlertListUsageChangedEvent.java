@@ -0,0 +1,46 @@
+/*
+ * graylog-plugin-alert-wizard Source Code
+ * Copyright (C) 2018-2020 - Airbus CyberSecurity (SAS) - All rights reserved
+ *
+ * This file is part of the graylog-plugin-alert-wizard GPL Source Code.
+ *
+ * graylog-plugin-alert-wizard Source Code is free software:
+ * you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * This code is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this code.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.airbus_cyber_security.graylog.list.events;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableSet;
+
+import java.util.Set;
+
+/**
+ * Posted on the cluster event bus once per request when the number of alert rules using wizard lists changes,
+ * so that the other nodes drop their cached response of these lists.
+ */
+@AutoValue
+@JsonAutoDetect
+public abstract class AlertListUsageChangedEvent {
+
+    @JsonProperty("titles")
+    public abstract ImmutableSet<String> getTitles();
+
+    @JsonCreator
+    public static AlertListUsageChangedEvent create(@JsonProperty("titles") Set<String> titles) {
+        return new AutoValue_AlertListUsageChangedEvent(ImmutableSet.copyOf(titles));
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * graylog-plugin-alert-wizard Source Code
+ * Copyright (C) 2018-2020 - Airbus CyberSecurity (SAS) - All rights reserved
+ *
+ * This file is part of the graylog-plugin-alert-wizard GPL Source Code.
+ *
+ * graylog-plugin-alert-wizard Source Code is free software:
+ * you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * This code is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this code.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.airbus_cyber_security.graylog.list.functions;
+
+import com.airbus_cyber_security.graylog.list.AlertListIndex;
+import com.airbus_cyber_security.graylog.list.IndexedAlertList;
+import org.graylog.plugins.pipelineprocessor.EvaluationContext;
+import org.graylog.plugins.pipelineprocessor.ast.functions.AbstractFunction;
+import org.graylog.plugins.pipelineprocessor.ast.functions.FunctionArgs;
+import org.graylog.plugins.pipelineprocessor.ast.functions.FunctionDescriptor;
+import org.graylog.plugins.pipelineprocessor.ast.functions.ParameterDescriptor;
+
+import javax.inject.Inject;
+import java.util.Optional;
+
+/**
+ * Checks whether a value is one of the entries of a wizard list (case insensitive).
+ */
+public class InWizardList extends AbstractFunction<Boolean> {
+
+    public static final String NAME = "in_wizard_list";
+    private static final String LIST = "list";
+    private static final String VALUE = "value";
+
+    private final ParameterDescriptor<String, String> listParam;
+    private final ParameterDescriptor<Object, Object> valueParam;
+
+    private final AlertListIndex alertListIndex;
+
+    @Inject
+    public InWizardList(AlertListIndex alertListIndex) {
+        this.alertListIndex = alertListIndex;
+        this.listParam = ParameterDescriptor.string(LIST).description("The title of the wizard list").build();
+        this.valueParam = ParameterDescriptor.object(VALUE).description("The value to look for in the list").build();
+    }
+
+    @Override
+    public Boolean evaluate(FunctionArgs args, EvaluationContext context) {
+        final String list = listParam.required(args, context);
+        final Object value = valueParam.optional(args, context).orElse(null);
+        if (list == null || value == null) {
+            return false;
+        }
+        final Optional<IndexedAlertList> alertList = alertListIndex.get(list);
+        return alertList.isPresent() && alertList.get().contains(value);
+    }
+
+    @Override
+    public FunctionDescriptor<Boolean> descriptor() {
+        return FunctionDescriptor.<Boolean>builder()
+                .name(NAME)
+                .returnType(Boolean.class)
+                .params(listParam, valueParam)
+                .description("Checks whether a value is an entry of a wizard list")
+                .build();
+    }
+}
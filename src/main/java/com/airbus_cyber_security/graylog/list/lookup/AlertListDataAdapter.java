@@ -0,0 +1,171 @@
+/*
+ * graylog-plugin-alert-wizard Source Code
+ * Copyright (C) 2018-2020 - Airbus CyberSecurity (SAS) - All rights reserved
+ *
+ * This file is part of the graylog-plugin-alert-wizard GPL Source Code.
+ *
+ * graylog-plugin-alert-wizard Source Code is free software:
+ * you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * This code is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this code.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.airbus_cyber_security.graylog.list.lookup;
+
+import com.airbus_cyber_security.graylog.list.AlertListIndex;
+import com.airbus_cyber_security.graylog.list.IndexedAlertList;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonTypeName;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.google.auto.value.AutoValue;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Multimap;
+import com.google.inject.assistedinject.Assisted;
+import org.graylog.autovalue.WithBeanGetter;
+import org.graylog2.plugin.lookup.LookupCachePurge;
+import org.graylog2.plugin.lookup.LookupDataAdapter;
+import org.graylog2.plugin.lookup.LookupDataAdapterConfiguration;
+import org.graylog2.plugin.lookup.LookupResult;
+import org.joda.time.Duration;
+
+import javax.inject.Inject;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Data adapter reading the wizard lists from the node-local {@link AlertListIndex}.
+ * The value of a key is the list of entries of the wizard list with this title, separated by semicolons,
+ * joined once per version of the list.
+ */
+public class AlertListDataAdapter extends LookupDataAdapter {
+
+    public static final String NAME = "wizard_list";
+
+    private final AlertListIndex alertListIndex;
+    // Keyed by identity, an entry goes away with the version of the list it was joined from
+    private final Cache<IndexedAlertList, String> values = CacheBuilder.newBuilder()
+            .weakKeys()
+            .softValues()
+            .build();
+
+    @Inject
+    public AlertListDataAdapter(@Assisted("id") String id,
+                                @Assisted("name") String name,
+                                @Assisted LookupDataAdapterConfiguration config,
+                                MetricRegistry metricRegistry,
+                                AlertListIndex alertListIndex) {
+        super(id, name, config, metricRegistry);
+        this.alertListIndex = alertListIndex;
+    }
+
+    @Override
+    protected void doStart() throws Exception {
+        // Lists are loaded by the index on first access
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        // Nothing to release, the index is shared
+    }
+
+    @Override
+    public Duration refreshInterval() {
+        // The index is kept up to date by the list change events
+        return Duration.ZERO;
+    }
+
+    @Override
+    protected void doRefresh(LookupCachePurge cachePurge) throws Exception {
+    }
+
+    @Override
+    protected LookupResult doGet(Object key) {
+        final Optional<IndexedAlertList> alertList = alertListIndex.get(String.valueOf(key));
+        if (!alertList.isPresent()) {
+            return LookupResult.empty();
+        }
+        try {
+            final IndexedAlertList list = alertList.get();
+            return LookupResult.single(values.get(list, () -> String.join(";", list.getEntries())));
+        } catch (ExecutionException e) {
+            return LookupResult.empty();
+        }
+    }
+
+    @Override
+    public void set(Object key, Object value) {
+        // Lists are managed through the wizard only
+    }
+
+    public interface Factory extends LookupDataAdapter.Factory<AlertListDataAdapter> {
+        @Override
+        AlertListDataAdapter create(@Assisted("id") String id,
+                                    @Assisted("name") String name,
+                                    LookupDataAdapterConfiguration configuration);
+
+        @Override
+        Descriptor getDescriptor();
+    }
+
+    public static class Descriptor extends LookupDataAdapter.Descriptor<Config> {
+        public Descriptor() {
+            super(NAME, Config.class);
+        }
+
+        @Override
+        public Config defaultConfiguration() {
+            return Config.builder()
+                    .type(NAME)
+                    .build();
+        }
+    }
+
+    @AutoValue
+    @WithBeanGetter
+    @JsonAutoDetect
+    @JsonDeserialize(builder = AutoValue_AlertListDataAdapter_Config.Builder.class)
+    @JsonTypeName(NAME)
+    public abstract static class Config implements LookupDataAdapterConfiguration {
+
+        @Override
+        @JsonProperty(TYPE_FIELD)
+        public abstract String type();
+
+        public static Builder builder() {
+            return new AutoValue_AlertListDataAdapter_Config.Builder();
+        }
+
+        @Override
+        public Optional<Multimap<String, String>> validate() {
+            return Optional.empty();
+        }
+
+        @AutoValue.Builder
+        public abstract static class Builder {
+            @JsonProperty(TYPE_FIELD)
+            public abstract Builder type(String type);
+
+            /**
+             * @deprecated lists are no longer refreshed periodically, kept to read the adapters saved with it
+             */
+            @Deprecated
+            @JsonProperty("refresh_interval")
+            public Builder refreshInterval(long refreshInterval) {
+                return this;
+            }
+
+            public abstract Config build();
+        }
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * graylog-plugin-alert-wizard Source Code
+ * Copyright (C) 2018-2020 - Airbus CyberSecurity (SAS) - All rights reserved
+ *
+ * This file is part of the graylog-plugin-alert-wizard GPL Source Code.
+ *
+ * graylog-plugin-alert-wizard Source Code is free software:
+ * you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * This code is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this code.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.airbus_cyber_security.graylog.list.lookup;
+
+import com.airbus_cyber_security.graylog.list.events.AlertListEntriesChangedEvent;
+import com.airbus_cyber_security.graylog.list.events.AlertListsChangedEvent;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonTypeName;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.google.auto.value.AutoValue;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+import com.google.inject.assistedinject.Assisted;
+import org.graylog.autovalue.WithBeanGetter;
+import org.graylog2.plugin.lookup.LookupCache;
+import org.graylog2.plugin.lookup.LookupCacheConfiguration;
+import org.graylog2.plugin.lookup.LookupCacheKey;
+import org.graylog2.plugin.lookup.LookupResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.validation.constraints.Min;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Bounded cache for the wizard lookup table.
+ * Entries of a list are dropped as soon as an {@link AlertListsChangedEvent} or an
+ * {@link AlertListEntriesChangedEvent} is received for it.
+ */
+public class AlertListLookupCache extends LookupCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AlertListLookupCache.class);
+
+    public static final String NAME = "wizard_list_cache";
+
+    private final EventBus serverEventBus;
+    private final Cache<LookupCacheKey, LookupResult> cache;
+
+    @Inject
+    public AlertListLookupCache(@Assisted("id") String id,
+                                @Assisted("name") String name,
+                                @Assisted LookupCacheConfiguration c,
+                                MetricRegistry metricRegistry,
+                                EventBus serverEventBus) {
+        super(id, name, c, metricRegistry);
+        final Config config = (Config) c;
+        this.serverEventBus = serverEventBus;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(config.maxSize())
+                .expireAfterWrite(config.expireAfterWrite(), TimeUnit.SECONDS)
+                .build();
+    }
+
+    @Override
+    protected void doStart() throws Exception {
+        serverEventBus.register(this);
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        serverEventBus.unregister(this);
+        cache.invalidateAll();
+    }
+
+    @Subscribe
+    public void handleAlertListsChanged(AlertListsChangedEvent event) {
+        purgeLists(event.getTitles());
+    }
+
+    @Subscribe
+    public void handleAlertListEntriesChanged(AlertListEntriesChangedEvent event) {
+        purgeLists(Collections.singleton(event.getTitle()));
+    }
+
+    private void purgeLists(Set<String> titles) {
+        LOG.debug("Purging cache entries of wizard lists {}", titles);
+        cache.invalidateAll(cache.asMap().keySet().stream()
+                .filter(key -> titles.contains(String.valueOf(key.queryKey())))
+                .collect(Collectors.toSet()));
+    }
+
+    @Override
+    public LookupResult get(LookupCacheKey key, Callable<LookupResult> loader) {
+        try (final Timer.Context ignored = lookupTimer()) {
+            return cache.get(key, () -> {
+                incrMissCount();
+                return loader.call();
+            });
+        } catch (ExecutionException e) {
+            LOG.warn("Loading value from data adapter failed for key {}, returning empty result", key, e);
+            return LookupResult.empty();
+        } finally {
+            incrTotalCount();
+        }
+    }
+
+    @Override
+    public LookupResult getIfPresent(LookupCacheKey key) {
+        final LookupResult cacheEntry = cache.getIfPresent(key);
+        if (cacheEntry == null) {
+            incrMissCount();
+            return LookupResult.empty();
+        }
+        return cacheEntry;
+    }
+
+    @Override
+    public void purge() {
+        cache.invalidateAll();
+    }
+
+    @Override
+    public void purge(LookupCacheKey purgeKey) {
+        if (purgeKey.isPrefixOnly()) {
+            cache.invalidateAll(cache.asMap().keySet().stream()
+                    .filter(key -> purgeKey.prefix().equals(key.prefix()))
+                    .collect(Collectors.toSet()));
+        } else {
+            cache.invalidate(purgeKey);
+        }
+    }
+
+    public long entryCount() {
+        return cache.size();
+    }
+
+    public interface Factory extends LookupCache.Factory<AlertListLookupCache> {
+        @Override
+        AlertListLookupCache create(@Assisted("id") String id,
+                                    @Assisted("name") String name,
+                                    LookupCacheConfiguration configuration);
+
+        @Override
+        Descriptor getDescriptor();
+    }
+
+    public static class Descriptor extends LookupCache.Descriptor<Config> {
+        public Descriptor() {
+            super(NAME, Config.class);
+        }
+
+        @Override
+        public Config defaultConfiguration() {
+            return Config.builder()
+                    .type(NAME)
+                    .maxSize(1000)
+                    .expireAfterWrite(60)
+                    .build();
+        }
+    }
+
+    @AutoValue
+    @WithBeanGetter
+    @JsonAutoDetect
+    @JsonDeserialize(builder = AutoValue_AlertListLookupCache_Config.Builder.class)
+    @JsonTypeName(NAME)
+    public abstract static class Config implements LookupCacheConfiguration {
+
+        @Override
+        @JsonProperty(TYPE_FIELD)
+        public abstract String type();
+
+        @JsonProperty("max_size")
+        @Min(1)
+        public abstract int maxSize();
+
+        @JsonProperty("expire_after_write")
+        @Min(1)
+        public abstract long expireAfterWrite();
+
+        public static Builder builder() {
+            return new AutoValue_AlertListLookupCache_Config.Builder();
+        }
+
+        @Override
+        public Optional<Multimap<String, String>> validate() {
+            final Multimap<String, String> errors = HashMultimap.create();
+            if (maxSize() < 1) {
+                errors.put("max_size", "Value cannot be smaller than 1");
+            }
+            if (expireAfterWrite() < 1) {
+                errors.put("expire_after_write", "Value cannot be smaller than 1");
+            }
+            return errors.isEmpty() ? Optional.empty() : Optional.of(errors);
+        }
+
+        @AutoValue.Builder
+        public abstract static class Builder {
+            @JsonProperty(TYPE_FIELD)
+            public abstract Builder type(String type);
+
+            @JsonProperty("max_size")
+            public abstract Builder maxSize(int maxSize);
+
+            @JsonProperty("expire_after_write")
+            public abstract Builder expireAfterWrite(long expireAfterWrite);
+
+            public abstract Config build();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * graylog-plugin-alert-wizard Source Code
+ * Copyright (C) 2018-2020 - Airbus CyberSecurity (SAS) - All rights reserved
+ *
+ * This file is part of the graylog-plugin-alert-wizard GPL Source Code.
+ *
+ * graylog-plugin-alert-wizard Source Code is free software:
+ * you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * This code is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this code.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.airbus_cyber_security.graylog.list.matchers;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+
+/**
+ * Matches the values containing at least one of the entries of the list.
+ * The entries are compiled into an Aho-Corasick automaton, so a lookup is linear in the length of the value
+ * whatever the number of entries.
+ */
+public class AhoCorasickListMatcher implements ListMatcher {
+
+    private final Node root = new Node();
+
+    public AhoCorasickListMatcher(Collection<String> entries) {
+        for (String entry : entries) {
+            if (entry.isEmpty()) {
+                continue;
+            }
+            Node node = root;
+            for (int i = 0; i < entry.length(); i++) {
+                node = node.addChild(entry.charAt(i));
+            }
+            node.output = true;
+        }
+        buildFailureLinks();
+    }
+
+    private void buildFailureLinks() {
+        final Deque<Node> queue = new ArrayDeque<>();
+        root.fail = root;
+        for (Node child : root.next) {
+            child.fail = root;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            final Node node = queue.poll();
+            for (int i = 0; i < node.keys.length; i++) {
+                final char c = node.keys[i];
+                final Node child = node.next[i];
+                Node fail = node.fail;
+                while (fail != root && fail.child(c) == null) {
+                    fail = fail.fail;
+                }
+                final Node target = fail.child(c);
+                child.fail = (target != null) ? target : root;
+                child.output |= child.fail.output;
+                queue.add(child);
+            }
+        }
+    }
+
+    @Override
+    public boolean matches(String value) {
+        Node node = root;
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            while (node != root && node.child(c) == null) {
+                node = node.fail;
+            }
+            final Node next = node.child(c);
+            node = (next != null) ? next : root;
+            if (node.output) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class Node {
+        private char[] keys = new char[0];
+        private Node[] next = new Node[0];
+        private Node fail;
+        private boolean output;
+
+        Node child(char c) {
+            final int index = Arrays.binarySearch(keys, c);
+            return (index >= 0) ? next[index] : null;
+        }
+
+        Node addChild(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            if (index >= 0) {
+                return next[index];
+            }
+            index = -index - 1;
+            final char[] newKeys = new char[keys.length + 1];
+            final Node[] newNext = new Node[next.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, index);
+            System.arraycopy(next, 0, newNext, 0, index);
+            System.arraycopy(keys, index, newKeys, index + 1, keys.length - index);
+            System.arraycopy(next, index, newNext, index + 1, next.length - index);
+            newKeys[index] = c;
+            newNext[index] = new Node();
+            keys = newKeys;
+            next = newNext;
+            return newNext[index];
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * graylog-plugin-alert-wizard Source Code
+ * Copyright (C) 2018-2020 - Airbus CyberSecurity (SAS) - All rights reserved
+ *
+ * This file is part of the graylog-plugin-alert-wizard GPL Source Code.
+ *
+ * graylog-plugin-alert-wizard Source Code is free software:
+ * you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * This code is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this code.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.airbus_cyber_security.graylog.list.matchers;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+
+/**
+ * Rejects most values which are not entries of the list with a Bloom filter,
+ * before asking the exact matcher it wraps.
+ * Only worth it in front of the off heap entries, a lookup in an on heap hash set costs no more than the filter.
+ */
+public class BloomFilterListMatcher implements ListMatcher {
+
+    private static final double FALSE_POSITIVE_PROBABILITY = 0.01;
+
+    private final BloomFilter<CharSequence> filter;
+    private final ListMatcher matcher;
+
+    public BloomFilterListMatcher(Collection<String> entries, ListMatcher matcher) {
+        this.filter = BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8),
+                Math.max(entries.size(), 1), FALSE_POSITIVE_PROBABILITY);
+        for (String entry : entries) {
+            this.filter.put(entry);
+        }
+        this.matcher = matcher;
+    }
+
+    private BloomFilterListMatcher(BloomFilter<CharSequence> filter, ListMatcher matcher) {
+        this.filter = filter;
+        this.matcher = matcher;
+    }
+
+    /**
+     * Adds entries to the filter, shared with this matcher, in front of another exact matcher.
+     * Removed entries are left in the filter, they are rejected by the exact matcher.
+     */
+    public BloomFilterListMatcher withEntries(Collection<String> added, ListMatcher matcher) {
+        for (String entry : added) {
+            filter.put(entry);
+        }
+        return new BloomFilterListMatcher(filter, matcher);
+    }
+
+    @Override
+    public boolean matches(String value) {
+        return filter.mightContain(value) && matcher.matches(value);
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * graylog-plugin-alert-wizard Source Code
+ * Copyright (C) 2018-2020 - Airbus CyberSecurity (SAS) - All rights reserved
+ *
+ * This file is part of the graylog-plugin-alert-wizard GPL Source Code.
+ *
+ * graylog-plugin-alert-wizard Source Code is free software:
+ * you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * This code is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this code.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.airbus_cyber_security.graylog.list.matchers;
+
+import com.google.common.net.InetAddresses;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+
+/**
+ * Matches IP addresses against a list of networks in CIDR notation (a single address is a /32 or /128 network).
+ * The networks are compiled into one binary trie per address family, so a lookup walks at most 32 or 128 bits
+ * whatever the number of networks.
+ */
+public class CidrListMatcher implements ListMatcher {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CidrListMatcher.class);
+
+    private final BinaryTrie ipv4 = new BinaryTrie();
+    private final BinaryTrie ipv6 = new BinaryTrie();
+
+    public CidrListMatcher(Collection<String> entries) {
+        for (String entry : entries) {
+            if (!add(entry)) {
+                LOG.warn("Ignoring invalid network {}", entry);
+            }
+        }
+        ipv4.trim();
+        ipv6.trim();
+    }
+
+    public static boolean isValidEntry(String entry) {
+        final int slash = entry.indexOf('/');
+        final String address = (slash < 0) ? entry : entry.substring(0, slash);
+        if (!InetAddresses.isInetAddress(address)) {
+            return false;
+        }
+        if (slash < 0) {
+            return true;
+        }
+        final int bits = InetAddresses.forString(address).getAddress().length * 8;
+        try {
+            final int prefixLength = Integer.parseInt(entry.substring(slash + 1));
+            return prefixLength >= 0 && prefixLength <= bits;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private boolean add(String entry) {
+        if (!isValidEntry(entry)) {
+            return false;
+        }
+        final int slash = entry.indexOf('/');
+        final byte[] address = InetAddresses.forString((slash < 0) ? entry : entry.substring(0, slash)).getAddress();
+        final int prefixLength = (slash < 0) ? address.length * 8 : Integer.parseInt(entry.substring(slash + 1));
+        trie(address).add(address, prefixLength);
+        return true;
+    }
+
+    private BinaryTrie trie(byte[] address) {
+        return (address.length == 4) ? ipv4 : ipv6;
+    }
+
+    @Override
+    public boolean matches(String value) {
+        if (!InetAddresses.isInetAddress(value)) {
+            return false;
+        }
+        final byte[] address = InetAddresses.forString(value).getAddress();
+        return trie(address).matches(address);
+    }
+
+    /**
+     * Binary trie stored in a flat array: the children of node n are at index 2n and 2n+1, 0 meaning no child.
+     */
+    private static class BinaryTrie {
+        private int[] children = new int[64];
+        private final BitSet terminals = new BitSet();
+        private int size = 1;
+
+        void add(byte[] address, int prefixLength) {
+            int node = 0;
+            for (int i = 0; i < prefixLength; i++) {
+                if (terminals.get(node)) {
+                    // Already covered by a larger network
+                    return;
+                }
+                final int slot = 2 * node + bit(address, i);
+                if (children[slot] == 0) {
+                    if (2 * (size + 1) > children.length) {
+                        children = Arrays.copyOf(children, children.length * 2);
+                    }
+                    children[slot] = size++;
+                }
+                node = children[slot];
+            }
+            terminals.set(node);
+        }
+
+        boolean matches(byte[] address) {
+            final int bits = address.length * 8;
+            int node = 0;
+            for (int i = 0; i < bits; i++) {
+                if (terminals.get(node)) {
+                    return true;
+                }
+                node = children[2 * node + bit(address, i)];
+                if (node == 0) {
+                    return false;
+                }
+            }
+            return terminals.get(node);
+        }
+
+        void trim() {
+            children = Arrays.copyOf(children, 2 * size);
+        }
+
+        private static int bit(byte[] address, int index) {
+            return (address[index >> 3] >> (7 - (index & 7))) & 1;
+        }
+    }
+}
@@ -0,0 +1,287 @@
+/*
+ * graylog-plugin-alert-wizard Source Code
+ * Copyright (C) 2018-2020 - Airbus CyberSecurity (SAS) - All rights reserved
+ *
+ * This file is part of the graylog-plugin-alert-wizard GPL Source Code.
+ *
+ * graylog-plugin-alert-wizard Source Code is free software:
+ * you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * This code is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this code.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.airbus_cyber_security.graylog.list.matchers;
+
+import com.google.common.primitives.UnsignedBytes;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Exact matcher keeping the entries out of the Java heap, for very large lists.
+ * Entries are stored sorted in a direct buffer as length-prefixed UTF-8 byte arrays,
+ * with a second direct buffer holding the offset of each entry, and are looked up by binary search.
+ * The buffers are only read with absolute gets so the matcher can be shared between threads.
+ */
+public class OffHeapListMatcher extends AbstractSet<String> implements ListMatcher {
+
+    private final ByteBuffer data;
+    private final IntBuffer offsets;
+    private final int size;
+
+    public OffHeapListMatcher(Collection<String> entries) {
+        this(encode(entries));
+    }
+
+    /**
+     * @param encoded UTF-8 encoded entries, in any order and possibly repeated
+     */
+    private OffHeapListMatcher(byte[][] encoded) {
+        Arrays.sort(encoded, UnsignedBytes.lexicographicalComparator());
+        int count = 0;
+        long dataSize = 0;
+        for (byte[] entry : encoded) {
+            if (count == 0 || !Arrays.equals(encoded[count - 1], entry)) {
+                encoded[count++] = entry;
+                dataSize += Integer.BYTES + entry.length;
+            }
+        }
+        this.size = count;
+        this.data = ByteBuffer.allocateDirect(checkedSize(dataSize));
+        this.offsets = ByteBuffer.allocateDirect(size * Integer.BYTES).asIntBuffer();
+        for (int j = 0; j < size; j++) {
+            offsets.put(j, data.position());
+            data.putInt(encoded[j].length);
+            data.put(encoded[j]);
+            encoded[j] = null;
+        }
+    }
+
+    private OffHeapListMatcher(ByteBuffer data, IntBuffer offsets, int size) {
+        this.data = data;
+        this.offsets = offsets;
+        this.size = size;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Merges added and removed entries into a copy of the buffers, without decoding the entries.
+     */
+    public OffHeapListMatcher withDelta(Collection<String> added, Collection<String> removed) {
+        final byte[][] removedEntries = encode(removed);
+        Arrays.sort(removedEntries, UnsignedBytes.lexicographicalComparator());
+        final List<byte[]> addedEntries = new ArrayList<>(added.size());
+        for (byte[] entry : encode(added)) {
+            if (Arrays.binarySearch(removedEntries, entry, UnsignedBytes.lexicographicalComparator()) < 0
+                    && !matches(entry)) {
+                addedEntries.add(entry);
+            }
+        }
+        addedEntries.sort(UnsignedBytes.lexicographicalComparator());
+
+        // Sizes first, the direct buffers cannot be shrunk
+        long dataSize = data.limit();
+        int count = size;
+        for (byte[] entry : addedEntries) {
+            dataSize += Integer.BYTES + entry.length;
+            count++;
+        }
+        final boolean[] kept = new boolean[size];
+        for (int j = 0; j < size; j++) {
+            kept[j] = !isListed(removedEntries, j);
+            if (!kept[j]) {
+                dataSize -= Integer.BYTES + data.getInt(offsets.get(j));
+                count--;
+            }
+        }
+
+        final ByteBuffer mergedData = ByteBuffer.allocateDirect(checkedSize(dataSize));
+        final IntBuffer mergedOffsets = ByteBuffer.allocateDirect(count * Integer.BYTES).asIntBuffer();
+        int next = 0;
+        int k = 0;
+        for (int j = 0; j <= size; j++) {
+            // Added entries sorted before the j-th one, or all the remaining ones after the last
+            while (k < addedEntries.size() && (j == size || compare(j, addedEntries.get(k)) > 0)) {
+                mergedOffsets.put(next++, mergedData.position());
+                mergedData.putInt(addedEntries.get(k).length);
+                mergedData.put(addedEntries.get(k++));
+            }
+            if (j < size && kept[j]) {
+                final int offset = offsets.get(j);
+                final ByteBuffer entry = data.duplicate();
+                entry.limit(offset + Integer.BYTES + data.getInt(offset)).position(offset);
+                mergedOffsets.put(next++, mergedData.position());
+                mergedData.put(entry);
+            }
+        }
+        return new OffHeapListMatcher(mergedData, mergedOffsets, count);
+    }
+
+    /**
+     * Writes the entries as their UTF-8 length followed by their bytes, in order, without decoding them.
+     */
+    public void writeTo(DataOutput output) throws IOException {
+        final byte[] buffer = new byte[8192];
+        final ByteBuffer entries = data.duplicate();
+        entries.limit(data.limit()).position(0);
+        while (entries.hasRemaining()) {
+            final int length = Math.min(buffer.length, entries.remaining());
+            entries.get(buffer, 0, length);
+            output.write(buffer, 0, length);
+        }
+    }
+
+    private static byte[][] encode(Collection<String> entries) {
+        final byte[][] encoded = new byte[entries.size()][];
+        int i = 0;
+        for (String entry : entries) {
+            encoded[i++] = entry.getBytes(StandardCharsets.UTF_8);
+        }
+        return encoded;
+    }
+
+    private static int checkedSize(long dataSize) {
+        if (dataSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("List is too large to be stored off heap: " + dataSize + " bytes");
+        }
+        return (int) dataSize;
+    }
+
+    private boolean isListed(byte[][] sortedEntries, int index) {
+        int low = 0;
+        int high = sortedEntries.length - 1;
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            final int comparison = -compare(index, sortedEntries[middle]);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean matches(String value) {
+        return matches(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private boolean matches(byte[] key) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            final int comparison = compare(middle, key);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean contains(Object value) {
+        return value instanceof String && matches((String) value);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the size of the direct buffers holding the entries, in bytes
+     */
+    public long footprint() {
+        return data.capacity() + (long) offsets.capacity() * Integer.BYTES;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return new Iterator<String>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return entry(next++);
+            }
+        };
+    }
+
+    private String entry(int index) {
+        final int offset = offsets.get(index);
+        final byte[] bytes = new byte[data.getInt(offset)];
+        for (int k = 0; k < bytes.length; k++) {
+            bytes[k] = data.get(offset + Integer.BYTES + k);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int compare(int index, byte[] key) {
+        final int offset = offsets.get(index);
+        final int length = data.getInt(offset);
+        final int start = offset + Integer.BYTES;
+        final int common = Math.min(length, key.length);
+        for (int k = 0; k < common; k++) {
+            final int comparison = UnsignedBytes.compare(data.get(start + k), key[k]);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return length - key.length;
+    }
+
+    /**
+     * Collects the entries of a list encoded, which take less heap than a set of strings until they are moved off heap.
+     */
+    public static class Builder {
+        private final List<byte[]> encoded = new ArrayList<>();
+
+        public Builder add(String entry) {
+            encoded.add(entry.getBytes(StandardCharsets.UTF_8));
+            return this;
+        }
+
+        public OffHeapListMatcher build() {
+            final byte[][] entries = encoded.toArray(new byte[0][]);
+            encoded.clear();
+            return new OffHeapListMatcher(entries);
+        }
+    }
+}
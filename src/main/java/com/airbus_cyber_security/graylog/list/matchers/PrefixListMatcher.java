@@ -0,0 +1,88 @@
+/*
+ * graylog-plugin-alert-wizard Source Code
+ * Copyright (C) 2018-2020 - Airbus CyberSecurity (SAS) - All rights reserved
+ *
+ * This file is part of the graylog-plugin-alert-wizard GPL Source Code.
+ *
+ * graylog-plugin-alert-wizard Source Code is free software:
+ * you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * This code is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this code.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.airbus_cyber_security.graylog.list.matchers;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Matches the values starting with one of the entries of the list.
+ * The entries are compiled into a character trie, so a lookup is linear in the length of the value.
+ */
+public class PrefixListMatcher implements ListMatcher {
+
+    private final Node root = new Node();
+
+    public PrefixListMatcher(Collection<String> entries) {
+        for (String entry : entries) {
+            Node node = root;
+            for (int i = 0; i < entry.length() && !node.terminal; i++) {
+                node = node.addChild(entry.charAt(i));
+            }
+            node.terminal = true;
+        }
+    }
+
+    @Override
+    public boolean matches(String value) {
+        Node node = root;
+        for (int i = 0; i < value.length(); i++) {
+            if (node.terminal) {
+                return true;
+            }
+            node = node.child(value.charAt(i));
+            if (node == null) {
+                return false;
+            }
+        }
+        return node.terminal;
+    }
+
+    private static final class Node {
+        private char[] keys = new char[0];
+        private Node[] next = new Node[0];
+        private boolean terminal;
+
+        Node child(char c) {
+            final int index = Arrays.binarySearch(keys, c);
+            return (index >= 0) ? next[index] : null;
+        }
+
+        Node addChild(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            if (index >= 0) {
+                return next[index];
+            }
+            index = -index - 1;
+            final char[] newKeys = new char[keys.length + 1];
+            final Node[] newNext = new Node[next.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, index);
+            System.arraycopy(next, 0, newNext, 0, index);
+            System.arraycopy(keys, index, newKeys, index + 1, keys.length - index);
+            System.arraycopy(next, index, newNext, index + 1, next.length - index);
+            newKeys[index] = c;
+            newNext[index] = new Node();
+            keys = newKeys;
+            next = newNext;
+            return newNext[index];
+        }
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * graylog-plugin-alert-wizard Source Code
+ * Copyright (C) 2018-2020 - Airbus CyberSecurity (SAS) - All rights reserved
+ *
+ * This file is part of the graylog-plugin-alert-wizard GPL Source Code.
+ *
+ * graylog-plugin-alert-wizard Source Code is free software:
+ * you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * This code is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this code.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.airbus_cyber_security.graylog.list.matchers;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.StringJoiner;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Matches the values in which any of the regular expressions of a list can be found.
+ * The expressions are compiled once into a single alternation, which saves compiling and calling one matcher
+ * per expression, but is still a backtracking matcher: each branch is tried at every position of the value.
+ * As the expressions are user supplied and evaluated for every message, a list holds at most
+ * {@value #MAX_EXPRESSIONS} expressions of at most {@value #MAX_EXPRESSION_LENGTH} characters, only the first
+ * {@value #MAX_VALUE_LENGTH} characters of a value are searched, and a search which reads the value more than
+ * {@value #MAX_STEPS} times, as catastrophic backtracking does, is abandoned as not matching.
+ * Backreferences are rejected, their group numbers would be shifted by the preceding expressions
+ * of the alternation, as well as named groups declared by several expressions.
+ */
+public class RegexListMatcher implements ListMatcher {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RegexListMatcher.class);
+    private static final int FLAGS = Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+    public static final int MAX_EXPRESSIONS = 1000;
+    public static final int MAX_EXPRESSION_LENGTH = 1000;
+    public static final int MAX_VALUE_LENGTH = 8192;
+    public static final int MAX_STEPS = 1000000;
+
+    private final Pattern pattern;
+
+    public RegexListMatcher(Collection<String> entries) {
+        final List<String> expressions = new ArrayList<>();
+        for (String entry : entries) {
+            if (expressions.size() == MAX_EXPRESSIONS) {
+                LOG.warn("Ignoring the regular expressions of a list beyond the first {}", MAX_EXPRESSIONS);
+                break;
+            }
+            if (isValidEntry(entry)) {
+                expressions.add(entry);
+            }
+        }
+        this.pattern = compile(expressions);
+    }
+
+    public static boolean isValidEntry(String entry) {
+        if (entry.length() > MAX_EXPRESSION_LENGTH || hasBackreference(entry)) {
+            return false;
+        }
+        try {
+            Pattern.compile(entry, FLAGS);
+            return true;
+        } catch (PatternSyntaxException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return whether each expression is valid and all of them can be combined into a single alternation
+     */
+    public static boolean isValidEntries(Collection<String> entries) {
+        if (entries.size() > MAX_EXPRESSIONS) {
+            return false;
+        }
+        for (String entry : entries) {
+            if (!isValidEntry(entry)) {
+                return false;
+            }
+        }
+        try {
+            alternation(entries).ifPresent(alternation -> Pattern.compile(alternation, FLAGS));
+            return true;
+        } catch (PatternSyntaxException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public boolean matches(String value) {
+        if (pattern == null) {
+            return false;
+        }
+        final String searched = (value.length() > MAX_VALUE_LENGTH) ? value.substring(0, MAX_VALUE_LENGTH) : value;
+        try {
+            return pattern.matcher(new BoundedCharSequence(searched, MAX_STEPS)).find();
+        } catch (StepLimitExceededException e) {
+            LOG.debug("Abandoned the search of regular expressions {} in a value, too many steps", pattern);
+            return false;
+        }
+    }
+
+    private static Pattern compile(List<String> expressions) {
+        try {
+            return alternation(expressions).map(alternation -> Pattern.compile(alternation, FLAGS)).orElse(null);
+        } catch (PatternSyntaxException e) {
+            // Lists stored before the alternation was validated, skip the expressions which cannot be combined
+            final List<String> combined = new ArrayList<>();
+            for (String expression : expressions) {
+                combined.add(expression);
+                if (!isValidEntries(combined)) {
+                    combined.remove(combined.size() - 1);
+                }
+            }
+            return alternation(combined).map(alternation -> Pattern.compile(alternation, FLAGS)).orElse(null);
+        }
+    }
+
+    private static Optional<String> alternation(Collection<String> expressions) {
+        if (expressions.isEmpty()) {
+            return Optional.empty();
+        }
+        final StringJoiner alternation = new StringJoiner("|");
+        for (String expression : expressions) {
+            alternation.add("(?:" + expression + ")");
+        }
+        return Optional.of(alternation.toString());
+    }
+
+    /**
+     * Looks for numbered (\1) and named (\k&lt;name&gt;) backreferences, outside of \Q...\E quotes.
+     */
+    private static boolean hasBackreference(String expression) {
+        int i = 0;
+        while (i < expression.length() - 1) {
+            if (expression.charAt(i) != '\\') {
+                i++;
+                continue;
+            }
+            final char escaped = expression.charAt(i + 1);
+            if ((escaped >= '1' && escaped <= '9') || escaped == 'k') {
+                return true;
+            }
+            if (escaped == 'Q') {
+                final int end = expression.indexOf("\\E", i + 2);
+                if (end < 0) {
+                    return false;
+                }
+                i = end + 2;
+            } else {
+                i += 2;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Value which can only be read a given number of times, the regex engine reading a character at each step.
+     */
+    private static final class BoundedCharSequence implements CharSequence {
+        private final String value;
+        private final int offset;
+        private final int length;
+        private final int[] remainingSteps;
+
+        BoundedCharSequence(String value, int maxSteps) {
+            this(value, 0, value.length(), new int[]{maxSteps});
+        }
+
+        private BoundedCharSequence(String value, int offset, int length, int[] remainingSteps) {
+            this.value = value;
+            this.offset = offset;
+            this.length = length;
+            this.remainingSteps = remainingSteps;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (--remainingSteps[0] < 0) {
+                throw new StepLimitExceededException();
+            }
+            return value.charAt(offset + index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new BoundedCharSequence(value, offset + start, end - start, remainingSteps);
+        }
+
+        @Override
+        public String toString() {
+            return value.substring(offset, offset + length);
+        }
+    }
+
+    private static final class StepLimitExceededException extends RuntimeException {
+        StepLimitExceededException() {
+            super(null, null, false, false);
+        }
+    }
+}
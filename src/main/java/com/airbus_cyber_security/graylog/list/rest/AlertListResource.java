@@ -25,23 +25,34 @@ import com.airbus_cyber_security.graylog.config.rest.AlertWizardConfig;
 import com.airbus_cyber_security.graylog.config.rest.ImportPolicyType;
 import com.airbus_cyber_security.graylog.list.AlertList;
 import com.airbus_cyber_security.graylog.list.AlertListImpl;
+import com.airbus_cyber_security.graylog.list.AlertListKind;
 import com.airbus_cyber_security.graylog.list.AlertListService;
+import com.airbus_cyber_security.graylog.list.AlertListSummary;
 import com.airbus_cyber_security.graylog.list.bundles.AlertListExporter;
 import com.airbus_cyber_security.graylog.list.bundles.ExportAlertList;
 import com.airbus_cyber_security.graylog.list.bundles.ExportAlertListRequest;
+import com.airbus_cyber_security.graylog.list.events.AlertListEntriesChangedEvent;
+import com.airbus_cyber_security.graylog.list.events.AlertListsChangedEvent;
+import com.airbus_cyber_security.graylog.list.rest.models.requests.AlertListEntriesRequest;
 import com.airbus_cyber_security.graylog.list.rest.models.requests.AlertListRequest;
 import com.airbus_cyber_security.graylog.list.rest.models.requests.CloneAlertListRequest;
-import com.airbus_cyber_security.graylog.list.rest.models.responses.GetAlertList;
 import com.airbus_cyber_security.graylog.list.rest.models.responses.GetListAlertList;
+import com.airbus_cyber_security.graylog.list.rest.models.responses.GetListAlertListSummary;
+import com.airbus_cyber_security.graylog.list.utilities.AlertListUtils;
 import com.airbus_cyber_security.graylog.list.utilities.AlertListUtilsService;
 import com.airbus_cyber_security.graylog.permissions.AlertRuleRestPermissions;
 import com.codahale.metrics.annotation.Timed;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
 import com.mongodb.MongoException;
 import io.swagger.annotations.*;
 import org.apache.shiro.authz.annotation.RequiresAuthentication;
 import org.apache.shiro.authz.annotation.RequiresPermissions;
 import org.graylog2.audit.jersey.AuditEvent;
 import org.graylog2.database.NotFoundException;
+import org.graylog2.events.ClusterEventBus;
 import org.graylog2.plugin.cluster.ClusterConfigService;
 import org.graylog2.plugin.configuration.ConfigurationException;
 import org.graylog2.plugin.database.ValidationException;
@@ -55,10 +66,25 @@ import javax.inject.Inject;
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
 import javax.ws.rs.*;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @Api(value = "Wizard/Lists", description = "Management of Wizard lists.")
 @Path("/lists")
@@ -70,18 +96,31 @@ public class AlertListResource extends RestResource implements PluginRestResourc
 
     private static final String ENCODING = "UTF-8";
     private static final String TITLE = "title";
+    private static final Set<String> SORT_FIELDS = ImmutableSet.of(TITLE, "created_at", "last_modified", "usage",
+            "entry_count", "size");
+    private static final String MODE = "mode";
+    private static final String MODE_APPEND = "append";
+    private static final String MODE_REMOVE = "remove";
+    private static final String MODE_REPLACE = "replace";
+    // Opaque tags of an If-None-Match header, weak or not, the value of a tag cannot contain a double quote
+    private static final Pattern ENTITY_TAGS = Pattern.compile("(?:W/)?\"([^\"]*)\"");
 
     private final AlertListService alertListService;
     private final ClusterConfigService clusterConfigService;
+    private final ClusterEventBus clusterEventBus;
     private final AlertListExporter alertListExporter;
     private final AlertListUtilsService alertListUtilsService;
-
+    private final AlertListResponseCache responseCache;
 
     @Inject
     public AlertListResource(AlertListService alertListService,
-                             ClusterConfigService clusterConfigService) {
+                             ClusterConfigService clusterConfigService,
+                             ClusterEventBus clusterEventBus,
+                             AlertListResponseCache responseCache) {
         this.alertListService = alertListService;
         this.clusterConfigService = clusterConfigService;
+        this.clusterEventBus = clusterEventBus;
+        this.responseCache = responseCache;
         this.alertListUtilsService = new AlertListUtilsService(alertListService);
         this.alertListExporter = new AlertListExporter(alertListService);
     }
@@ -91,9 +130,22 @@ public class AlertListResource extends RestResource implements PluginRestResourc
     @ApiOperation(value = "AlertListDisplay all existing lists")
     @RequiresAuthentication
     @RequiresPermissions(AlertRuleRestPermissions.WIZARD_ALERTS_RULES_READ)
-    public GetListAlertList list() {
-        final List<AlertList> lists = alertListService.all();
-        return GetListAlertList.create(lists);
+    public Object list(@ApiParam(name = "summary", value = "Only return the metadata of the lists, without their entries")
+                       @QueryParam("summary") @DefaultValue("false") boolean summary,
+                       @ApiParam(name = "page") @QueryParam("page") @DefaultValue("1") int page,
+                       @ApiParam(name = "per_page", value = "0 for all the lists") @QueryParam("per_page") @DefaultValue("0") int perPage,
+                       @ApiParam(name = "sort", allowableValues = "title,created_at,last_modified,usage,entry_count,size")
+                       @QueryParam("sort") @DefaultValue(TITLE) String sort,
+                       @ApiParam(name = "order", allowableValues = "asc,desc") @QueryParam("order") @DefaultValue("asc") String order) {
+        if (!summary) {
+            final List<AlertList> lists = alertListService.all();
+            return GetListAlertList.create(lists);
+        }
+        if (!SORT_FIELDS.contains(sort) || page < 1 || perPage < 0) {
+            throw new javax.ws.rs.BadRequestException("Invalid paging or sorting parameters");
+        }
+        final List<AlertListSummary> lists = alertListService.summaries(sort, !"desc".equalsIgnoreCase(order), page, perPage);
+        return GetListAlertListSummary.create(lists, alertListService.count(), page, perPage);
     }
 
     @GET
@@ -103,17 +155,39 @@ public class AlertListResource extends RestResource implements PluginRestResourc
     @RequiresAuthentication
     @RequiresPermissions(AlertRuleRestPermissions.WIZARD_ALERTS_RULES_READ)
     @ApiResponses(value = {
+            @ApiResponse(code = 304, message = "List not modified."),
             @ApiResponse(code = 404, message = "List not found."),
     })
-    public GetAlertList get(@ApiParam(name = TITLE, required = true) @PathParam(TITLE) String title)
-            throws UnsupportedEncodingException, NotFoundException {
+    public Response get(@ApiParam(name = TITLE, required = true) @PathParam(TITLE) String title,
+                        @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch)
+            throws UnsupportedEncodingException, NotFoundException, JsonProcessingException {
         String listTitle = java.net.URLDecoder.decode(title, ENCODING);
 
-        final AlertList list = alertListService.load(listTitle);
-        if(list == null) {
+        final Optional<AlertListResponseCache.CachedResponse> response = responseCache.get(listTitle);
+        if(!response.isPresent()) {
             throw new NotFoundException("List <" + listTitle + "> not found!");
         }
-        return GetAlertList.create(list);
+        final EntityTag entityTag = new EntityTag(response.get().getEntityTag());
+        if (ifNoneMatch != null && matchesAny(ifNoneMatch, entityTag)) {
+            return Response.notModified(entityTag).build();
+        }
+        return Response.ok(response.get().getBody(), MediaType.APPLICATION_JSON_TYPE).tag(entityTag).build();
+    }
+
+    /**
+     * Compares the entity tags of an If-None-Match header with the weak comparison, as required for this header.
+     */
+    private static boolean matchesAny(String ifNoneMatch, EntityTag entityTag) {
+        if (ifNoneMatch.trim().equals("*")) {
+            return true;
+        }
+        final Matcher tags = ENTITY_TAGS.matcher(ifNoneMatch);
+        while (tags.find()) {
+            if (tags.group(1).equals(entityTag.getValue())) {
+                return true;
+            }
+        }
+        return false;
     }
 
     private String checkImportPolicyAndGetTitle(String title){
@@ -164,7 +238,9 @@ public class AlertListResource extends RestResource implements PluginRestResourc
                 DateTime.now(),
                 request.getDescription(),
                 0,
-                request.getLists()));
+                request.getLists(),
+                request.getKind()));
+        clusterEventBus.post(AlertListsChangedEvent.create(listTitle));
 
         return Response.accepted().build();
     }
@@ -186,16 +262,19 @@ public class AlertListResource extends RestResource implements PluginRestResourc
 
         AlertList oldAlert = alertListService.load(title);
         String listTitle = request.getTitle();
+        String oldListTitle = java.net.URLDecoder.decode(title, ENCODING);
 
-        alertListService.update(java.net.URLDecoder.decode(title, ENCODING),
+        alertListService.update(oldListTitle,
                 AlertListImpl.create(
                         listTitle,
                         oldAlert.getCreatedAt(),
                         getCurrentUser().getName(),
                         DateTime.now(),
                         request.getDescription(),
-                        request.getUsage(),
-                        request.getLists()));
+                        oldAlert.getUsage(),
+                        request.getLists(),
+                        request.getKind()));
+        clusterEventBus.post(AlertListsChangedEvent.create(ImmutableSet.of(oldListTitle, listTitle)));
 
         return Response.accepted().build();
     }
@@ -222,11 +301,119 @@ public class AlertListResource extends RestResource implements PluginRestResourc
                 DateTime.now(),
                 request.getDescription(),
                 0,
-                sourcelist.getLists()));
+                sourcelist.getLists(),
+                sourcelist.getKind()));
+        alertListService.copyEntries(title, request.getTitle());
+        clusterEventBus.post(AlertListsChangedEvent.create(request.getTitle()));
 
         return Response.accepted().build();
     }
 
+    @POST
+    @Path("/{title}/entries")
+    @Timed
+    @Consumes(MediaType.TEXT_PLAIN)
+    @RequiresAuthentication
+    @RequiresPermissions(AlertRuleRestPermissions.WIZARD_ALERTS_RULES_UPDATE)
+    @ApiOperation(value = "Bulk load the entries of a list, one entry per line")
+    @ApiResponses(value = {
+            @ApiResponse(code = 404, message = "List not found."),
+            @ApiResponse(code = 400, message = "The supplied request is not valid.")
+    })
+    @AuditEvent(type = AlertWizardAuditEventTypes.WIZARD_ALERTS_RULES_UPDATE)
+    public Map<String, Object> loadEntries(@ApiParam(name = TITLE, required = true) @PathParam(TITLE) String title,
+                                           @ApiParam(name = MODE, allowableValues = "append,remove,replace")
+                                           @QueryParam(MODE) @DefaultValue(MODE_APPEND) String mode,
+                                           @ApiParam(name = "entries", required = true) @NotNull InputStream body)
+            throws IOException {
+        final String listTitle = java.net.URLDecoder.decode(title, ENCODING);
+        final AlertListKind kind = alertListService.kind(listTitle);
+        if (kind == null) {
+            throw new javax.ws.rs.NotFoundException("Cannot find list " + listTitle);
+        }
+
+        final long count;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            Iterator<String> entries = reader.lines().iterator();
+            // Networks and regular expressions are checked before anything is written, other entries are streamed
+            if (!mode.equals(MODE_REMOVE) && isCheckedKind(kind)) {
+                final List<String> lines = Lists.newArrayList(entries);
+                if (!alertListService.isValidEntries(listTitle, lines, Collections.emptySet(), mode.equals(MODE_REPLACE))) {
+                    throw new javax.ws.rs.BadRequestException("Invalid entries for list " + listTitle);
+                }
+                entries = lines.iterator();
+            }
+            switch (mode) {
+                case MODE_APPEND:
+                    count = alertListService.addEntries(listTitle, entries);
+                    break;
+                case MODE_REMOVE:
+                    count = alertListService.removeEntries(listTitle, entries);
+                    break;
+                case MODE_REPLACE:
+                    count = alertListService.replaceEntries(listTitle, entries);
+                    break;
+                default:
+                    throw new javax.ws.rs.BadRequestException("Unknown mode " + mode);
+            }
+        }
+        clusterEventBus.post(AlertListsChangedEvent.create(listTitle));
+
+        return ImmutableMap.of(TITLE, listTitle, "processed", count);
+    }
+
+    @PATCH
+    @Path("/{title}/entries")
+    @Timed
+    @RequiresAuthentication
+    @RequiresPermissions(AlertRuleRestPermissions.WIZARD_ALERTS_RULES_UPDATE)
+    @ApiOperation(value = "Add or remove some entries of a list")
+    @ApiResponses(value = {
+            @ApiResponse(code = 404, message = "List not found."),
+            @ApiResponse(code = 400, message = "The supplied request is not valid.")
+    })
+    @AuditEvent(type = AlertWizardAuditEventTypes.WIZARD_ALERTS_RULES_UPDATE)
+    public Response updateEntries(@ApiParam(name = TITLE, required = true) @PathParam(TITLE) String title,
+                                  @ApiParam(name = "JSON body", required = true) @Valid @NotNull AlertListEntriesRequest request)
+            throws UnsupportedEncodingException {
+        final String listTitle = java.net.URLDecoder.decode(title, ENCODING);
+        final AlertListKind kind = alertListService.kind(listTitle);
+        if (kind == null) {
+            throw new javax.ws.rs.NotFoundException("Cannot find list " + listTitle);
+        }
+
+        final Set<String> added = normalizeEntries(kind, request.getAdd());
+        final Set<String> removed = normalizeEntries(kind, request.getRemove());
+        added.removeAll(removed);
+        if (added.isEmpty() && removed.isEmpty()) {
+            return Response.noContent().build();
+        }
+        if (isCheckedKind(kind) && !alertListService.isValidEntries(listTitle, added, removed, false)) {
+            throw new javax.ws.rs.BadRequestException("Invalid entries for list " + listTitle);
+        }
+        final DateTime lastModified = alertListService.updateEntries(listTitle, added, removed);
+        clusterEventBus.post(AlertListEntriesChangedEvent.create(listTitle, added, removed, lastModified.getMillis()));
+
+        return Response.accepted().build();
+    }
+
+    private static boolean isCheckedKind(AlertListKind kind) {
+        return kind == AlertListKind.CIDR || kind == AlertListKind.REGEX;
+    }
+
+    private Set<String> normalizeEntries(AlertListKind kind, List<String> entries) {
+        final Set<String> result = new HashSet<>();
+        if (entries != null) {
+            for (String entry : entries) {
+                final String value = AlertListUtils.normalize(kind, entry);
+                if (!value.isEmpty()) {
+                    result.add(value);
+                }
+            }
+        }
+        return result;
+    }
+
     @DELETE
     @Path("/{title}")
     @RequiresAuthentication
@@ -246,6 +433,7 @@ public class AlertListResource extends RestResource implements PluginRestResourc
             AlertList alertList = alertListService.load(listTitle);
             if(alertList.getUsage() <= 0){
                 alertListService.destroy(listTitle);
+                clusterEventBus.post(AlertListsChangedEvent.create(listTitle));
             }else{
                 throw new javax.ws.rs.BadRequestException("List " + listTitle + " used in alert rules");
             }
@@ -278,7 +466,12 @@ public class AlertListResource extends RestResource implements PluginRestResourc
                 DateTime.now(),
                 alertList.getDescription(),
                 0,
-                alertList.getLists()));
+                alertList.getLists(),
+                alertList.getKind()));
+        if (alertList.getEntries() != null) {
+            alertListService.addEntries(listTitle, alertList.getEntries().iterator());
+        }
+        clusterEventBus.post(AlertListsChangedEvent.create(listTitle));
     }
 
     @PUT
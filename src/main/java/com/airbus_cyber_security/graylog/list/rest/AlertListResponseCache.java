@@ -0,0 +1,142 @@
+/*
+ * graylog-plugin-alert-wizard Source Code
+ * Copyright (C) 2018-2020 - Airbus CyberSecurity (SAS) - All rights reserved
+ *
+ * This file is part of the graylog-plugin-alert-wizard GPL Source Code.
+ *
+ * graylog-plugin-alert-wizard Source Code is free software:
+ * you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * This code is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this code.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.airbus_cyber_security.graylog.list.rest;
+
+import com.airbus_cyber_security.graylog.list.AlertList;
+import com.airbus_cyber_security.graylog.list.AlertListService;
+import com.airbus_cyber_security.graylog.list.AlertListSummary;
+import com.airbus_cyber_security.graylog.list.events.AlertListEntriesChangedEvent;
+import com.airbus_cyber_security.graylog.list.events.AlertListUsageChangedEvent;
+import com.airbus_cyber_security.graylog.list.events.AlertListsChangedEvent;
+import com.airbus_cyber_security.graylog.list.rest.models.responses.GetAlertList;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+import com.google.common.hash.Hashing;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Serialized responses of GET /lists/{title} with their entity tag, so that unchanged lists are served
+ * without reading the database nor serializing them again.
+ * Responses are dropped when their list changes, on this node or on another one.
+ * Each response keeps the generation of its title when it was loaded, a response loaded while the list was
+ * changed is not served. Lists which do not exist are not cached.
+ */
+@Singleton
+public class AlertListResponseCache {
+
+    private static final long MAX_WEIGHT = 64L * 1024 * 1024;
+    private static final int GENERATIONS = 1024;
+
+    private final Provider<AlertListService> alertListService;
+    private final ObjectMapper objectMapper;
+    private final Cache<String, CachedResponse> responses = CacheBuilder.newBuilder()
+            .maximumWeight(MAX_WEIGHT)
+            .<String, CachedResponse>weigher((title, response) -> title.length() + response.getBody().length)
+            .build();
+    // Incremented by the invalidations, per title hash so that any title can be tracked in a bounded space
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATIONS);
+
+    @Inject
+    public AlertListResponseCache(Provider<AlertListService> alertListService, ObjectMapper objectMapper,
+                                  EventBus serverEventBus) {
+        this.alertListService = alertListService;
+        this.objectMapper = objectMapper;
+        serverEventBus.register(this);
+    }
+
+    public Optional<CachedResponse> get(String title) throws JsonProcessingException {
+        final long generation = generations.get(slot(title));
+        final CachedResponse cached = responses.getIfPresent(title);
+        if (cached != null && cached.generation == generation) {
+            return Optional.of(cached);
+        }
+        final Optional<CachedResponse> loaded = load(title, generation);
+        // Not cached if the list changed while it was loaded, the next request loads it again
+        if (loaded.isPresent() && generations.get(slot(title)) == generation) {
+            responses.put(title, loaded.get());
+        }
+        return loaded;
+    }
+
+    public void invalidate(String title) {
+        generations.incrementAndGet(slot(title));
+        responses.invalidate(title);
+    }
+
+    @Subscribe
+    public void handleAlertListsChanged(AlertListsChangedEvent event) {
+        event.getTitles().forEach(this::invalidate);
+    }
+
+    @Subscribe
+    public void handleAlertListEntriesChanged(AlertListEntriesChangedEvent event) {
+        invalidate(event.getTitle());
+    }
+
+    @Subscribe
+    public void handleAlertListUsageChanged(AlertListUsageChangedEvent event) {
+        event.getTitles().forEach(this::invalidate);
+    }
+
+    private static int slot(String title) {
+        return Math.floorMod(title.hashCode(), GENERATIONS);
+    }
+
+    private Optional<CachedResponse> load(String title, long generation) throws JsonProcessingException {
+        final AlertList list = alertListService.get().load(title);
+        if (list == null) {
+            return Optional.empty();
+        }
+        final AlertListSummary summary = alertListService.get().summary(title);
+        final byte[] body = objectMapper.writeValueAsBytes(GetAlertList.create(list,
+                (summary == null) ? null : summary.getEntryCount()));
+        return Optional.of(new CachedResponse(Hashing.murmur3_128().hashBytes(body).toString(), body, generation));
+    }
+
+    public static class CachedResponse {
+        private final String entityTag;
+        private final byte[] body;
+        private final long generation;
+
+        CachedResponse(String entityTag, byte[] body, long generation) {
+            this.entityTag = entityTag;
+            this.body = body;
+            this.generation = generation;
+        }
+
+        public String getEntityTag() {
+            return entityTag;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+    }
+}
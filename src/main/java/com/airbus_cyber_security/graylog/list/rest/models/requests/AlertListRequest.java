@@ -20,6 +20,7 @@
 
 package com.airbus_cyber_security.graylog.list.rest.models.requests;
 
+import com.airbus_cyber_security.graylog.list.AlertListKind;
 import com.fasterxml.jackson.annotation.JsonAutoDetect;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
@@ -48,11 +49,16 @@ public abstract class AlertListRequest {
     @Nullable
     public abstract String getLists();
 
+    @JsonProperty("kind")
+    @Nullable
+    public abstract AlertListKind getKind();
+
     @JsonCreator
     public static AlertListRequest create(@JsonProperty("title") String title,
                                           @JsonProperty("description") String description,
                                           @JsonProperty("usage") int usage,
-                                          @JsonProperty("lists") String lists) {
-        return new AutoValue_AlertListRequest(title, description, usage, lists);
+                                          @JsonProperty("lists") String lists,
+                                          @JsonProperty("kind") AlertListKind kind) {
+        return new AutoValue_AlertListRequest(title, description, usage, lists, kind);
     }
 }
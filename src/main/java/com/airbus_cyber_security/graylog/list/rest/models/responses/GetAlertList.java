@@ -26,6 +26,8 @@ import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.auto.value.AutoValue;
 
+import javax.annotation.Nullable;
+
 @AutoValue
 @JsonAutoDetect
 public abstract class GetAlertList {
@@ -33,8 +35,16 @@ public abstract class GetAlertList {
     @JsonProperty
     public abstract AlertList getLists();
 
+    /**
+     * Number of entries of the list, including the bulk loaded ones which are not in its text.
+     */
+    @JsonProperty("entry_count")
+    @Nullable
+    public abstract Long getEntryCount();
+
     @JsonCreator
-    public static GetAlertList create(@JsonProperty("list") AlertList list) {
-        return new AutoValue_GetAlertList(list);
+    public static GetAlertList create(@JsonProperty("list") AlertList list,
+                                      @JsonProperty("entry_count") Long entryCount) {
+        return new AutoValue_GetAlertList(list, entryCount);
     }
 }
@@ -0,0 +1,126 @@
+/*
+ * graylog-plugin-alert-wizard Source Code
+ * Copyright (C) 2018-2020 - Airbus CyberSecurity (SAS) - All rights reserved
+ *
+ * This file is part of the graylog-plugin-alert-wizard GPL Source Code.
+ *
+ * graylog-plugin-alert-wizard Source Code is free software:
+ * you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * This code is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this code.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.airbus_cyber_security.graylog.list.utilities;
+
+import com.airbus_cyber_security.graylog.list.AlertListKind;
+import com.google.common.collect.ImmutableSet;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.regex.Pattern;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+public class AlertListUtils {
+
+    private static final Pattern SEPARATOR = Pattern.compile("[;\\r\\n]+");
+    // Regular expressions may contain semicolons, they are only separated by line breaks
+    private static final Pattern LINE_SEPARATOR = Pattern.compile("[\\r\\n]+");
+    private static final int BUFFER_SIZE = 8192;
+
+    private AlertListUtils() {
+    }
+
+    /**
+     * Splits the content of a list into its trimmed, lower-cased entries.
+     */
+    public static ImmutableSet<String> parseEntries(String lists) {
+        return parseEntries(AlertListKind.PLAIN, lists);
+    }
+
+    /**
+     * Splits the content of a list into its entries, normalized according to the kind of the list.
+     */
+    public static ImmutableSet<String> parseEntries(AlertListKind kind, String lists) {
+        final ImmutableSet.Builder<String> entries = ImmutableSet.builder();
+        if (lists == null) {
+            return entries.build();
+        }
+        final Pattern separator = (kind == AlertListKind.REGEX) ? LINE_SEPARATOR : SEPARATOR;
+        for (String entry : separator.split(lists)) {
+            final String value = normalize(kind, entry);
+            if (!value.isEmpty()) {
+                entries.add(value);
+            }
+        }
+        return entries.build();
+    }
+
+    /**
+     * @return the separator used to join the entries of a list of the given kind
+     */
+    public static String separator(AlertListKind kind) {
+        return (kind == AlertListKind.REGEX) ? "\n" : ";";
+    }
+
+    public static byte[] deflate(String lists) {
+        final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(lists.getBytes(StandardCharsets.UTF_8));
+            deflater.finish();
+            final ByteArrayOutputStream output = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            while (!deflater.finished()) {
+                output.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return output.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    public static String inflate(byte[] deflatedLists) {
+        final Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(deflatedLists);
+            final ByteArrayOutputStream output = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            while (!inflater.finished()) {
+                final int length = inflater.inflate(buffer);
+                if (length == 0 && !inflater.finished() && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalArgumentException("Truncated deflated list");
+                }
+                output.write(buffer, 0, length);
+            }
+            return new String(output.toByteArray(), StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Invalid deflated list", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    public static String normalize(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Regular expressions keep their case, as it is meaningful in escapes such as \S or \W.
+     */
+    public static String normalize(AlertListKind kind, String value) {
+        if (kind == AlertListKind.REGEX) {
+            return value.trim();
+        }
+        return normalize(value);
+    }
+}
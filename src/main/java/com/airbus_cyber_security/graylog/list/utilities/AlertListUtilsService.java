@@ -20,16 +20,16 @@
 
 package com.airbus_cyber_security.graylog.list.utilities;
 
-import com.airbus_cyber_security.graylog.list.AlertList;
-import com.airbus_cyber_security.graylog.list.AlertListImpl;
 import com.airbus_cyber_security.graylog.list.AlertListService;
 import com.airbus_cyber_security.graylog.list.rest.models.requests.AlertListRequest;
-import org.graylog2.database.NotFoundException;
+import com.google.common.collect.ImmutableSet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.ws.rs.BadRequestException;
 import java.io.UnsupportedEncodingException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class AlertListUtilsService {
 
@@ -37,6 +37,8 @@ public class AlertListUtilsService {
     private static final Logger LOG = LoggerFactory.getLogger(AlertListUtilsService.class);
 
     private final AlertListService alertListService;
+    // Lists whose usage changed during the request, see flushUsageChanges
+    private final Set<String> usageChanged = ConcurrentHashMap.newKeySet();
 
     public AlertListUtilsService(AlertListService alertListService) {
         this.alertListService = alertListService;
@@ -51,47 +53,36 @@ public class AlertListUtilsService {
 
     public void incrementUsage(String title) {
         try {
-            AlertList oldAlertList = alertListService.load(title);
-            if(oldAlertList != null) {
-                alertListService.update(java.net.URLDecoder.decode(title, ENCODING),
-                        AlertListImpl.create(
-                                title,
-                                oldAlertList.getCreatedAt(),
-                                oldAlertList.getCreatorUserId(),
-                                oldAlertList.getCreatedAt(),
-                                oldAlertList.getDescription(),
-                                oldAlertList.getUsage() + 1,
-                                oldAlertList.getLists()));
-            }else{
+            final String listTitle = java.net.URLDecoder.decode(title, ENCODING);
+            if(alertListService.incrementUsage(listTitle)) {
+                usageChanged.add(listTitle);
+            } else {
                 LOG.error("Failed to increment list, "+ title + " does not exist");
             }
-        } catch (UnsupportedEncodingException | NotFoundException e) {
+        } catch (UnsupportedEncodingException e) {
             LOG.error("Failed to increment list " + title);
         }
     }
 
     public void decrementUsage(String title) {
         try {
-            AlertList oldAlertList = alertListService.load(title);
-            if(oldAlertList != null) {
-                int usage = oldAlertList.getUsage() - 1;
-                if (usage < 0) {
-                    usage = 0;
-                }
-                alertListService.update(java.net.URLDecoder.decode(title, ENCODING),
-                        AlertListImpl.create(
-                                title,
-                                oldAlertList.getCreatedAt(),
-                                oldAlertList.getCreatorUserId(),
-                                oldAlertList.getCreatedAt(),
-                                oldAlertList.getDescription(),
-                                usage,
-                                oldAlertList.getLists()));
-            }else{
-                LOG.error("Failed to decrement list, "+ title + " does not exist");
+            final String listTitle = java.net.URLDecoder.decode(title, ENCODING);
+            if(alertListService.decrementUsage(listTitle)) {
+                usageChanged.add(listTitle);
+            } else {
+                LOG.debug("List "+ title + " does not exist or is not used anymore");
             }
-        } catch (UnsupportedEncodingException | NotFoundException e) {
+        } catch (UnsupportedEncodingException e) {
             LOG.error("Failed to decrement list " + title);
         }
     }
+
+    /**
+     * Invalidates the lists whose usage changed since the last call, with a single cluster event.
+     */
+    public void flushUsageChanges() {
+        final Set<String> titles = ImmutableSet.copyOf(usageChanged);
+        usageChanged.removeAll(titles);
+        alertListService.usageChanged(titles);
+    }
 }
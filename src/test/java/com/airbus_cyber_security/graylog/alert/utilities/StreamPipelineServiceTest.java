@@ -0,0 +1,119 @@
+/*
+ * graylog-plugin-alert-wizard Source Code
+ * Copyright (C) 2018-2020 - Airbus CyberSecurity (SAS) - All rights reserved
+ *
+ * This file is part of the graylog-plugin-alert-wizard GPL Source Code.
+ *
+ * graylog-plugin-alert-wizard Source Code is free software:
+ * you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * This code is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this code.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.airbus_cyber_security.graylog.alert.utilities;
+
+import com.airbus_cyber_security.graylog.alert.FieldRuleImpl;
+import org.graylog2.plugin.streams.StreamRule;
+import org.graylog2.plugin.streams.StreamRuleType;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class StreamPipelineServiceTest {
+
+    private static StreamRule streamRule(StreamRuleType type, boolean inverted, String field, String value) {
+        final StreamRule streamRule = mock(StreamRule.class);
+        when(streamRule.getType()).thenReturn(type);
+        when(streamRule.getInverted()).thenReturn(inverted);
+        when(streamRule.getField()).thenReturn(field);
+        when(streamRule.getValue()).thenReturn(value);
+        return streamRule;
+    }
+
+    @Test
+    public void isSameRuleComparesTypeInversionFieldAndValue() {
+        final StreamRule streamRule = streamRule(StreamRuleType.EXACT, false, "source", "host");
+
+        assertThat(StreamPipelineService.isSameRule(streamRule, FieldRuleImpl.create("1", "source", 1, "host"))).isTrue();
+        assertThat(StreamPipelineService.isSameRule(streamRule, FieldRuleImpl.create("1", "source", -1, "host"))).isFalse();
+        assertThat(StreamPipelineService.isSameRule(streamRule, FieldRuleImpl.create("1", "source", 6, "host"))).isFalse();
+        assertThat(StreamPipelineService.isSameRule(streamRule, FieldRuleImpl.create("1", "user", 1, "host"))).isFalse();
+        assertThat(StreamPipelineService.isSameRule(streamRule, FieldRuleImpl.create("1", "source", 1, "other"))).isFalse();
+    }
+
+    @Test
+    public void isSameRuleMatchesInvertedRuleWithNegativeType() {
+        final StreamRule streamRule = streamRule(StreamRuleType.PRESENCE, true, "user", null);
+
+        assertThat(StreamPipelineService.isSameRule(streamRule, FieldRuleImpl.create("1", "user", -5, null))).isTrue();
+        assertThat(StreamPipelineService.isSameRule(streamRule, FieldRuleImpl.create("1", "user", 5, null))).isFalse();
+    }
+
+    @Test
+    public void matchStreamRulesKeepsUnmatchedRulesOnBothSides() {
+        final StreamRule kept = streamRule(StreamRuleType.EXACT, false, "source", "host");
+        final StreamRule removed = streamRule(StreamRuleType.CONTAINS, false, "message", "error");
+        final FieldRuleImpl added = FieldRuleImpl.create("2", "message", 6, "denied");
+        final List<FieldRuleImpl> fieldRules = new ArrayList<>(Arrays.asList(
+                FieldRuleImpl.create("1", "source", 1, "host"), added));
+
+        final List<StreamRule> unmatched = StreamPipelineService.matchStreamRules(Arrays.asList(kept, removed), fieldRules);
+
+        assertThat(unmatched).containsExactly(removed);
+        assertThat(fieldRules).containsExactly(added);
+    }
+
+    @Test
+    public void matchStreamRulesMatchesEachFieldRuleOnce() {
+        final StreamRule first = streamRule(StreamRuleType.EXACT, false, "source", "host");
+        final StreamRule duplicate = streamRule(StreamRuleType.EXACT, false, "source", "host");
+        final List<FieldRuleImpl> fieldRules = new ArrayList<>(Collections.singletonList(
+                FieldRuleImpl.create("1", "source", 1, "host")));
+
+        final List<StreamRule> unmatched = StreamPipelineService.matchStreamRules(Arrays.asList(first, duplicate), fieldRules);
+
+        assertThat(unmatched).containsExactly(duplicate);
+        assertThat(fieldRules).isEmpty();
+    }
+
+    @Test
+    public void matchStreamRulesWithEmptyLists() {
+        final StreamRule streamRule = streamRule(StreamRuleType.EXACT, false, "source", "host");
+        final FieldRuleImpl fieldRule = FieldRuleImpl.create("1", "source", 1, "host");
+        final List<FieldRuleImpl> fieldRules = new ArrayList<>(Collections.singletonList(fieldRule));
+
+        assertThat(StreamPipelineService.matchStreamRules(Collections.emptyList(), fieldRules)).isEmpty();
+        assertThat(fieldRules).containsExactly(fieldRule);
+        assertThat(StreamPipelineService.matchStreamRules(Collections.singletonList(streamRule), new ArrayList<>()))
+                .containsExactly(streamRule);
+    }
+
+    @Test
+    public void routingKeyIgnoresRuleOrder() {
+        final List<StreamRule> streamRules = Arrays.asList(
+                streamRule(StreamRuleType.CONTAINS, true, "message", "error"),
+                streamRule(StreamRuleType.EXACT, false, "source", "host"));
+        final List<FieldRuleImpl> fieldRules = Arrays.asList(
+                FieldRuleImpl.create("1", "source", 1, "host"),
+                FieldRuleImpl.create("2", "message", -6, "error"));
+
+        assertThat(StreamPipelineService.routingKey(streamRules)).isEqualTo(StreamPipelineService.routingKey(fieldRules));
+        assertThat(StreamPipelineService.routingKey(fieldRules))
+                .isNotEqualTo(StreamPipelineService.routingKey(Collections.singletonList(fieldRules.get(0))));
+    }
+}
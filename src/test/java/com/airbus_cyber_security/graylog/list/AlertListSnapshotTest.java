@@ -0,0 +1,125 @@
+/*
+ * graylog-plugin-alert-wizard Source Code
+ * Copyright (C) 2018-2020 - Airbus CyberSecurity (SAS) - All rights reserved
+ *
+ * This file is part of the graylog-plugin-alert-wizard GPL Source Code.
+ *
+ * graylog-plugin-alert-wizard Source Code is free software:
+ * you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * This code is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this code.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.airbus_cyber_security.graylog.list;
+
+import com.airbus_cyber_security.graylog.list.matchers.ExactListMatcher;
+import com.airbus_cyber_security.graylog.list.matchers.OffHeapListMatcher;
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Timer;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AlertListSnapshotTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static IndexedAlertList list(String title, AlertListKind kind, long lastModified, Set<String> entries) {
+        return new IndexedAlertList(title, 1, kind, lastModified, entries, new ExactListMatcher(entries),
+                new AlertListMetrics(new Counter(), new Counter(), new Timer()));
+    }
+
+    @Test
+    public void readsWrittenLists() throws IOException {
+        final AlertListSnapshot snapshot = new AlertListSnapshot(temporaryFolder.getRoot().toPath());
+        snapshot.write(Arrays.asList(
+                list("users", AlertListKind.PLAIN, 1000L, ImmutableSet.of("alice", "bob", "élodie")),
+                list("networks", AlertListKind.CIDR, 2000L, ImmutableSet.of("10.0.0.0/8")),
+                list("empty", AlertListKind.REGEX, 3000L, ImmutableSet.of())));
+
+        final List<AlertListSnapshot.Entry> entries = new ArrayList<>();
+        assertThat(snapshot.read(entries::add)).isEqualTo(3);
+
+        assertThat(entries).extracting(AlertListSnapshot.Entry::getTitle).containsExactly("users", "networks", "empty");
+        assertThat(entries).extracting(AlertListSnapshot.Entry::getKind)
+                .containsExactly(AlertListKind.PLAIN, AlertListKind.CIDR, AlertListKind.REGEX);
+        assertThat(entries).extracting(AlertListSnapshot.Entry::getLastModified).containsExactly(1000L, 2000L, 3000L);
+        assertThat(entries.get(0).getEntries()).containsExactlyInAnyOrder("alice", "bob", "élodie");
+        assertThat(entries.get(1).getEntries()).containsExactly("10.0.0.0/8");
+        assertThat(entries.get(2).getEntries()).isEmpty();
+    }
+
+    @Test
+    public void readsWrittenOffHeapLists() throws IOException {
+        final AlertListSnapshot snapshot = new AlertListSnapshot(temporaryFolder.getRoot().toPath());
+        final OffHeapListMatcher entries = new OffHeapListMatcher(ImmutableSet.of("bob", "alice", "élodie"));
+        snapshot.write(Collections.singletonList(new IndexedAlertList("users", 1, AlertListKind.PLAIN, 1000L, entries,
+                entries, new AlertListMetrics(new Counter(), new Counter(), new Timer()))));
+
+        final List<AlertListSnapshot.Entry> read = new ArrayList<>();
+        assertThat(snapshot.read(read::add)).isEqualTo(1);
+        assertThat(read.get(0).getEntries()).containsExactlyInAnyOrder("alice", "bob", "élodie");
+    }
+
+    @Test
+    public void readsNothingWithoutSnapshot() {
+        final AlertListSnapshot snapshot = new AlertListSnapshot(temporaryFolder.getRoot().toPath());
+
+        assertThat(snapshot.read(entry -> { throw new AssertionError("Unexpected list " + entry.getTitle()); })).isZero();
+    }
+
+    @Test
+    public void readsEmptySnapshot() throws IOException {
+        final AlertListSnapshot snapshot = new AlertListSnapshot(temporaryFolder.getRoot().toPath());
+        snapshot.write(Collections.emptyList());
+
+        assertThat(snapshot.read(entry -> { throw new AssertionError("Unexpected list " + entry.getTitle()); })).isZero();
+    }
+
+    @Test
+    public void stopsReadingTruncatedSnapshot() throws IOException {
+        final Path dataDir = temporaryFolder.getRoot().toPath();
+        final AlertListSnapshot snapshot = new AlertListSnapshot(dataDir);
+        snapshot.write(Arrays.asList(
+                list("first", AlertListKind.PLAIN, 1000L, ImmutableSet.of("alice")),
+                list("second", AlertListKind.PLAIN, 2000L, ImmutableSet.of("bob", "carol"))));
+        final Path file = dataDir.resolve("alert-wizard").resolve("lists.snapshot");
+        final byte[] content = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(content, content.length - 3));
+
+        final List<AlertListSnapshot.Entry> entries = new ArrayList<>();
+        assertThat(snapshot.read(entries::add)).isEqualTo(1);
+        assertThat(entries).extracting(AlertListSnapshot.Entry::getTitle).containsExactly("first");
+    }
+
+    @Test
+    public void ignoresUnknownFormat() throws IOException {
+        final Path dataDir = temporaryFolder.getRoot().toPath();
+        final Path file = dataDir.resolve("alert-wizard").resolve("lists.snapshot");
+        Files.createDirectories(file.getParent());
+        Files.write(file, new byte[]{0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11});
+
+        assertThat(new AlertListSnapshot(dataDir).read(entry -> { })).isZero();
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * graylog-plugin-alert-wizard Source Code
+ * Copyright (C) 2018-2020 - Airbus CyberSecurity (SAS) - All rights reserved
+ *
+ * This file is part of the graylog-plugin-alert-wizard GPL Source Code.
+ *
+ * graylog-plugin-alert-wizard Source Code is free software:
+ * you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * This code is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this code.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.airbus_cyber_security.graylog.list.matchers;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AhoCorasickListMatcherTest {
+
+    @Test
+    public void matchesValuesContainingAnEntry() {
+        final AhoCorasickListMatcher matcher = new AhoCorasickListMatcher(ImmutableList.of("error", "denied"));
+
+        assertThat(matcher.matches("permission denied for user")).isTrue();
+        assertThat(matcher.matches("error")).isTrue();
+        assertThat(matcher.matches("an err occurred")).isFalse();
+    }
+
+    @Test
+    public void followsFailureLinks() {
+        final AhoCorasickListMatcher matcher = new AhoCorasickListMatcher(ImmutableList.of("he", "she", "his", "hers"));
+
+        assertThat(matcher.matches("ushers")).isTrue();
+        assertThat(matcher.matches("ahis")).isTrue();
+        assertThat(matcher.matches("hhi")).isFalse();
+    }
+
+    @Test
+    public void matchesEntryReachedThroughFailureLinkOnly() {
+        // "abce" leaves the "abcd" branch after "abc", whose failure link ends the entry "bc"
+        final AhoCorasickListMatcher matcher = new AhoCorasickListMatcher(ImmutableList.of("abcd", "bc"));
+
+        assertThat(matcher.matches("abce")).isTrue();
+        assertThat(matcher.matches("abd")).isFalse();
+    }
+
+    @Test
+    public void emptyListMatchesNothing() {
+        final AhoCorasickListMatcher matcher = new AhoCorasickListMatcher(Collections.emptyList());
+
+        assertThat(matcher.matches("")).isFalse();
+        assertThat(matcher.matches("abc")).isFalse();
+    }
+}
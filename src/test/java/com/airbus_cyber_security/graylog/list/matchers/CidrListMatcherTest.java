@@ -0,0 +1,97 @@
+/*
+ * graylog-plugin-alert-wizard Source Code
+ * Copyright (C) 2018-2020 - Airbus CyberSecurity (SAS) - All rights reserved
+ *
+ * This file is part of the graylog-plugin-alert-wizard GPL Source Code.
+ *
+ * graylog-plugin-alert-wizard Source Code is free software:
+ * you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * This code is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this code.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.airbus_cyber_security.graylog.list.matchers;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CidrListMatcherTest {
+
+    @Test
+    public void matchesAddressesInsideNetwork() {
+        final CidrListMatcher matcher = new CidrListMatcher(ImmutableList.of("10.0.0.0/8", "192.168.1.0/24"));
+
+        assertThat(matcher.matches("10.20.30.40")).isTrue();
+        assertThat(matcher.matches("192.168.1.255")).isTrue();
+        assertThat(matcher.matches("192.168.2.1")).isFalse();
+        assertThat(matcher.matches("11.0.0.1")).isFalse();
+    }
+
+    @Test
+    public void matchesEverythingWithZeroPrefixLength() {
+        final CidrListMatcher matcher = new CidrListMatcher(ImmutableList.of("0.0.0.0/0"));
+
+        assertThat(matcher.matches("0.0.0.0")).isTrue();
+        assertThat(matcher.matches("255.255.255.255")).isTrue();
+        assertThat(matcher.matches("::1")).isFalse();
+    }
+
+    @Test
+    public void matchesSingleAddress() {
+        final CidrListMatcher matcher = new CidrListMatcher(ImmutableList.of("172.16.0.1/32", "172.16.0.3"));
+
+        assertThat(matcher.matches("172.16.0.1")).isTrue();
+        assertThat(matcher.matches("172.16.0.3")).isTrue();
+        assertThat(matcher.matches("172.16.0.2")).isFalse();
+    }
+
+    @Test
+    public void matchesIpv6Networks() {
+        final CidrListMatcher matcher = new CidrListMatcher(ImmutableList.of("2001:db8::/32", "fe80::1/128"));
+
+        assertThat(matcher.matches("2001:db8:1234::1")).isTrue();
+        assertThat(matcher.matches("2001:db9::1")).isFalse();
+        assertThat(matcher.matches("fe80::1")).isTrue();
+        assertThat(matcher.matches("fe80::2")).isFalse();
+        assertThat(matcher.matches("32.1.13.184")).isFalse();
+    }
+
+    @Test
+    public void ignoresInvalidEntries() {
+        final CidrListMatcher matcher = new CidrListMatcher(ImmutableList.of("10.0.0.0/33", "not an address", "10.0.0.0/24"));
+
+        assertThat(matcher.matches("10.0.0.1")).isTrue();
+        assertThat(matcher.matches("not an address")).isFalse();
+    }
+
+    @Test
+    public void validatesEntries() {
+        assertThat(CidrListMatcher.isValidEntry("10.0.0.0/0")).isTrue();
+        assertThat(CidrListMatcher.isValidEntry("10.0.0.1/32")).isTrue();
+        assertThat(CidrListMatcher.isValidEntry("::/128")).isTrue();
+        assertThat(CidrListMatcher.isValidEntry("10.0.0.0/33")).isFalse();
+        assertThat(CidrListMatcher.isValidEntry("10.0.0.0/-1")).isFalse();
+        assertThat(CidrListMatcher.isValidEntry("10.0.0.0/a")).isFalse();
+        assertThat(CidrListMatcher.isValidEntry("10.0.0")).isFalse();
+    }
+
+    @Test
+    public void emptyListMatchesNothing() {
+        final CidrListMatcher matcher = new CidrListMatcher(Collections.emptyList());
+
+        assertThat(matcher.matches("10.0.0.1")).isFalse();
+        assertThat(matcher.matches("::1")).isFalse();
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * graylog-plugin-alert-wizard Source Code
+ * Copyright (C) 2018-2020 - Airbus CyberSecurity (SAS) - All rights reserved
+ *
+ * This file is part of the graylog-plugin-alert-wizard GPL Source Code.
+ *
+ * graylog-plugin-alert-wizard Source Code is free software:
+ * you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * This code is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this code.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.airbus_cyber_security.graylog.list.matchers;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class OffHeapListMatcherTest {
+
+    @Test
+    public void matchesExactEntries() {
+        final OffHeapListMatcher matcher = new OffHeapListMatcher(ImmutableList.of("gamma", "alpha", "été", "beta"));
+
+        assertThat(matcher.matches("alpha")).isTrue();
+        assertThat(matcher.matches("gamma")).isTrue();
+        assertThat(matcher.matches("été")).isTrue();
+        assertThat(matcher.matches("alph")).isFalse();
+        assertThat(matcher.matches("delta")).isFalse();
+        assertThat(matcher.contains(42)).isFalse();
+    }
+
+    @Test
+    public void iteratesOverSortedEntries() {
+        final OffHeapListMatcher matcher = new OffHeapListMatcher(ImmutableList.of("gamma", "alpha", "beta"));
+
+        assertThat(matcher).hasSize(3).containsExactly("alpha", "beta", "gamma");
+        assertThat(matcher.footprint()).isPositive();
+    }
+
+    @Test
+    public void mergesDeltaIntoSortedEntries() {
+        final OffHeapListMatcher matcher = new OffHeapListMatcher(ImmutableList.of("gamma", "alpha", "beta"));
+
+        final OffHeapListMatcher merged = matcher.withDelta(ImmutableSet.of("aaa", "delta", "zzz", "beta", "omega"),
+                ImmutableSet.of("gamma", "omega", "unknown"));
+
+        assertThat(merged).hasSize(5).containsExactly("aaa", "alpha", "beta", "delta", "zzz");
+        assertThat(merged.matches("gamma")).isFalse();
+        assertThat(merged.matches("omega")).isFalse();
+        assertThat(matcher).containsExactly("alpha", "beta", "gamma");
+    }
+
+    @Test
+    public void mergesDeltaIntoEmptyList() {
+        final OffHeapListMatcher matcher = new OffHeapListMatcher(Collections.emptyList())
+                .withDelta(ImmutableSet.of("alpha"), Collections.emptySet());
+
+        assertThat(matcher).containsExactly("alpha");
+        assertThat(matcher.withDelta(Collections.emptySet(), ImmutableSet.of("alpha"))).isEmpty();
+    }
+
+    @Test
+    public void buildsFromRepeatedEntries() {
+        final OffHeapListMatcher matcher = OffHeapListMatcher.builder().add("beta").add("alpha").add("beta").build();
+
+        assertThat(matcher).containsExactly("alpha", "beta");
+    }
+
+    @Test
+    public void emptyListMatchesNothing() {
+        final OffHeapListMatcher matcher = new OffHeapListMatcher(Collections.emptyList());
+
+        assertThat(matcher).isEmpty();
+        assertThat(matcher.matches("")).isFalse();
+        assertThat(matcher.matches("alpha")).isFalse();
+    }
+}
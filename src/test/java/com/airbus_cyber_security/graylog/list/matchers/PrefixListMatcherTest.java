@@ -0,0 +1,63 @@
+/*
+ * graylog-plugin-alert-wizard Source Code
+ * Copyright (C) 2018-2020 - Airbus CyberSecurity (SAS) - All rights reserved
+ *
+ * This file is part of the graylog-plugin-alert-wizard GPL Source Code.
+ *
+ * graylog-plugin-alert-wizard Source Code is free software:
+ * you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * This code is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this code.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.airbus_cyber_security.graylog.list.matchers;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PrefixListMatcherTest {
+
+    @Test
+    public void matchesValuesStartingWithAnEntry() {
+        final PrefixListMatcher matcher = new PrefixListMatcher(ImmutableList.of("http://", "ftp"));
+
+        assertThat(matcher.matches("http://example.org")).isTrue();
+        assertThat(matcher.matches("ftp")).isTrue();
+        assertThat(matcher.matches("https://example.org")).isFalse();
+        assertThat(matcher.matches("sftp")).isFalse();
+    }
+
+    @Test
+    public void matchesOverlappingPrefixesWhateverTheirOrder() {
+        final PrefixListMatcher longestFirst = new PrefixListMatcher(ImmutableList.of("abcd", "ab"));
+        final PrefixListMatcher shortestFirst = new PrefixListMatcher(ImmutableList.of("ab", "abcd"));
+
+        for (PrefixListMatcher matcher : ImmutableList.of(longestFirst, shortestFirst)) {
+            assertThat(matcher.matches("ab")).isTrue();
+            assertThat(matcher.matches("abc")).isTrue();
+            assertThat(matcher.matches("abcdef")).isTrue();
+            assertThat(matcher.matches("a")).isFalse();
+            assertThat(matcher.matches("acbd")).isFalse();
+        }
+    }
+
+    @Test
+    public void emptyListMatchesNothing() {
+        final PrefixListMatcher matcher = new PrefixListMatcher(Collections.emptyList());
+
+        assertThat(matcher.matches("")).isFalse();
+        assertThat(matcher.matches("abc")).isFalse();
+    }
+}
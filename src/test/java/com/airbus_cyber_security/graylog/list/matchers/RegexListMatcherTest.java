@@ -0,0 +1,96 @@
+/*
+ * graylog-plugin-alert-wizard Source Code
+ * Copyright (C) 2018-2020 - Airbus CyberSecurity (SAS) - All rights reserved
+ *
+ * This file is part of the graylog-plugin-alert-wizard GPL Source Code.
+ *
+ * graylog-plugin-alert-wizard Source Code is free software:
+ * you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * This code is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this code.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.airbus_cyber_security.graylog.list.matchers;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RegexListMatcherTest {
+
+    @Test
+    public void matchesAnyExpressionCaseInsensitively() {
+        final RegexListMatcher matcher = new RegexListMatcher(ImmutableList.of("^adm\\w+$", "root;.*"));
+
+        assertThat(matcher.matches("Administrator")).isTrue();
+        assertThat(matcher.matches("root;shell")).isTrue();
+        assertThat(matcher.matches("admin user")).isFalse();
+        assertThat(matcher.matches("guest")).isFalse();
+    }
+
+    @Test
+    public void rejectsInvalidExpressions() {
+        assertThat(RegexListMatcher.isValidEntry("a[b")).isFalse();
+        assertThat(RegexListMatcher.isValidEntry("(a)\\1")).isFalse();
+        assertThat(RegexListMatcher.isValidEntry("(?<name>a)\\k<name>")).isFalse();
+        assertThat(RegexListMatcher.isValidEntry("\\\\1")).isTrue();
+        assertThat(RegexListMatcher.isValidEntry("\\Q\\1\\E")).isTrue();
+    }
+
+    @Test
+    public void rejectsExpressionsWhichCannotBeCombined() {
+        assertThat(RegexListMatcher.isValidEntries(ImmutableList.of("(?<name>a)", "(?<name>b)"))).isFalse();
+        assertThat(RegexListMatcher.isValidEntries(ImmutableList.of("(?<first>a)", "(?<second>b)"))).isTrue();
+    }
+
+    @Test
+    public void rejectsTooManyOrTooLongExpressions() {
+        final List<String> expressions = new ArrayList<>();
+        for (int i = 0; i <= RegexListMatcher.MAX_EXPRESSIONS; i++) {
+            expressions.add("a" + i);
+        }
+
+        assertThat(RegexListMatcher.isValidEntries(expressions)).isFalse();
+        assertThat(RegexListMatcher.isValidEntries(expressions.subList(0, RegexListMatcher.MAX_EXPRESSIONS))).isTrue();
+        assertThat(RegexListMatcher.isValidEntry(Strings.repeat("a", RegexListMatcher.MAX_EXPRESSION_LENGTH + 1))).isFalse();
+    }
+
+    @Test
+    public void onlySearchesBeginningOfLongValues() {
+        final RegexListMatcher matcher = new RegexListMatcher(ImmutableList.of("needle"));
+
+        assertThat(matcher.matches(Strings.repeat("x", RegexListMatcher.MAX_VALUE_LENGTH - 6) + "needle")).isTrue();
+        assertThat(matcher.matches(Strings.repeat("x", RegexListMatcher.MAX_VALUE_LENGTH) + "needle")).isFalse();
+    }
+
+    @Test
+    public void abandonsSearchesTakingTooManySteps() {
+        final RegexListMatcher matcher = new RegexListMatcher(ImmutableList.of("a.*b.*c.*=x"));
+
+        assertThat(matcher.matches(Strings.repeat("abc", 3000))).isFalse();
+        assertThat(matcher.matches("abc=x")).isTrue();
+    }
+
+    @Test
+    public void emptyListMatchesNothing() {
+        final RegexListMatcher matcher = new RegexListMatcher(Collections.emptyList());
+
+        assertThat(matcher.matches("")).isFalse();
+        assertThat(matcher.matches("abc")).isFalse();
+        assertThat(RegexListMatcher.isValidEntries(Collections.emptyList())).isTrue();
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * graylog-plugin-alert-wizard Source Code
+ * Copyright (C) 2018-2020 - Airbus CyberSecurity (SAS) - All rights reserved
+ *
+ * This file is part of the graylog-plugin-alert-wizard GPL Source Code.
+ *
+ * graylog-plugin-alert-wizard Source Code is free software:
+ * you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * This code is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this code.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.airbus_cyber_security.graylog.list.rest;
+
+import com.airbus_cyber_security.graylog.list.AlertList;
+import com.airbus_cyber_security.graylog.list.AlertListService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.eventbus.EventBus;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AlertListResponseCacheTest {
+
+    private AlertListService alertListService;
+    private AlertListResponseCache responseCache;
+
+    @Before
+    public void setUp() throws Exception {
+        alertListService = mock(AlertListService.class);
+        final ObjectMapper objectMapper = mock(ObjectMapper.class);
+        when(objectMapper.writeValueAsBytes(any())).thenReturn(new byte[]{'{', '}'});
+        responseCache = new AlertListResponseCache(() -> alertListService, objectMapper, new EventBus());
+    }
+
+    @Test
+    public void servesCachedResponseUntilInvalidated() throws Exception {
+        when(alertListService.load("users")).thenReturn(mock(AlertList.class));
+
+        assertThat(responseCache.get("users")).isPresent();
+        assertThat(responseCache.get("users")).isPresent();
+        verify(alertListService, times(1)).load("users");
+
+        responseCache.invalidate("users");
+        assertThat(responseCache.get("users")).isPresent();
+        verify(alertListService, times(2)).load("users");
+    }
+
+    @Test
+    public void doesNotCacheMissingLists() throws Exception {
+        assertThat(responseCache.get("unknown")).isNotPresent();
+        assertThat(responseCache.get("unknown")).isNotPresent();
+
+        verify(alertListService, times(2)).load("unknown");
+    }
+
+    @Test
+    public void doesNotCacheResponseLoadedWhileInvalidated() throws Exception {
+        final AlertList list = mock(AlertList.class);
+        when(alertListService.load("users")).thenAnswer(invocation -> {
+            responseCache.invalidate("users");
+            return list;
+        }).thenReturn(list);
+
+        assertThat(responseCache.get("users")).isPresent();
+        assertThat(responseCache.get("users")).isPresent();
+        assertThat(responseCache.get("users")).isPresent();
+
+        verify(alertListService, times(2)).load("users");
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * graylog-plugin-alert-wizard Source Code
+ * Copyright (C) 2018-2020 - Airbus CyberSecurity (SAS) - All rights reserved
+ *
+ * This file is part of the graylog-plugin-alert-wizard GPL Source Code.
+ *
+ * graylog-plugin-alert-wizard Source Code is free software:
+ * you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation,
+ * either version 3 of the License, or (at your option) any later version.
+ *
+ * This code is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this code.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.airbus_cyber_security.graylog.list.utilities;
+
+import com.airbus_cyber_security.graylog.list.AlertListKind;
+import com.google.common.base.Strings;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class AlertListUtilsTest {
+
+    @Test
+    public void parsesTrimmedLowerCasedEntries() {
+        assertThat(AlertListUtils.parseEntries(" Alpha ;beta\r\nGAMMA\n;;beta"))
+                .containsExactly("alpha", "beta", "gamma");
+    }
+
+    @Test
+    public void splitsRegularExpressionsOnLineBreaksOnly() {
+        assertThat(AlertListUtils.parseEntries(AlertListKind.REGEX, "a;b\r\n\\S+\n\n"))
+                .containsExactly("a;b", "\\S+");
+        assertThat(AlertListUtils.separator(AlertListKind.REGEX)).isEqualTo("\n");
+        assertThat(AlertListUtils.separator(AlertListKind.CIDR)).isEqualTo(";");
+    }
+
+    @Test
+    public void parsesEmptyLists() {
+        assertThat(AlertListUtils.parseEntries(null)).isEmpty();
+        assertThat(AlertListUtils.parseEntries("")).isEmpty();
+        assertThat(AlertListUtils.parseEntries(" ; \n")).isEmpty();
+    }
+
+    @Test
+    public void inflatesDeflatedLists() {
+        final String lists = "alpha;beta;été;" + Strings.repeat("entry;", 10000);
+
+        assertThat(AlertListUtils.inflate(AlertListUtils.deflate(lists))).isEqualTo(lists);
+        assertThat(AlertListUtils.inflate(AlertListUtils.deflate(""))).isEmpty();
+    }
+
+    @Test
+    public void rejectsTruncatedDeflatedLists() {
+        final byte[] deflated = AlertListUtils.deflate("alpha;beta;gamma;delta");
+
+        assertThatThrownBy(() -> AlertListUtils.inflate(Arrays.copyOf(deflated, deflated.length / 2)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Truncated deflated list");
+        assertThatThrownBy(() -> AlertListUtils.inflate(new byte[0]))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void rejectsInvalidDeflatedLists() {
+        assertThatThrownBy(() -> AlertListUtils.inflate(new byte[]{1, 2, 3, 4}))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid deflated list");
+    }
+}
@@ -34,6 +34,9 @@ const WizardConfigurationStore = Reflux.createStore({
         const request = {field_order: config.field_order,
                         default_values: config.default_values,
                         import_policy: config.import_policy,
+                        list_rules_mode: config.list_rules_mode,
+                        share_streams: config.share_streams,
+                        off_heap_threshold: config.off_heap_threshold,
         };
 
         const promise = fetch(method, URLUtils.qualifyUrl(this.sourceUrl), request)
@@ -29,6 +29,8 @@ const AlertRuleActions = Reflux.createActions({
     deleteByName: {asyncResult: true},
     update: {asyncResult: true},
     clone: {asyncResult: true},
+    pause: {asyncResult: true},
+    resume: {asyncResult: true},
     exportAlertRules: {asyncResult: true},
     importAlertRules: {asyncResult: true},
 });
@@ -24,7 +24,6 @@ import Reflux from 'reflux';
 import createReactClass from 'create-react-class';
 import AlertRuleStore from './AlertRuleStore';
 import AlertRuleActions from './AlertRuleActions';
-import StoreProvider from 'injection/StoreProvider';
 import {Tooltip} from 'react-bootstrap';
 import {DataTable, IfPermitted, OverlayElement, Spinner, Timestamp} from 'components/common';
 import {Button} from 'components/graylog';
@@ -36,7 +35,6 @@ import DateTime from 'logic/datetimes/DateTime';
 import {FormattedMessage} from 'react-intl';
 import AlertRuleText from 'wizard/AlertRuleText'
 
-const StreamsStore = StoreProvider.getStore('Streams');
 
 const AlertRuleList = createReactClass({
     displayName: 'AlertRuleList',
@@ -97,21 +95,15 @@ const AlertRuleList = createReactClass({
             }
         };
     },
-    _onResume(stream, stream2) {
+    _onResume(name) {
         return () => {
-            StreamsStore.resume(stream, response => response).finally(() => this.list());
-            if(stream2 !== null && stream2 !== ''){
-                StreamsStore.resume(stream2, response => response).finally(() => this.list()); 
-            }
+            AlertRuleActions.resume(name).finally(() => this.list());
         }
     },
-    _onPause(name, stream, stream2) {
+    _onPause(name) {
         return () => {
             if (window.confirm(`${this.state.messages.confirmDisable} "${name}" ?`)) {
-                StreamsStore.pause(stream, response => response).finally(() => this.list());
-                if(stream2 !== null && stream2 !== ''){
-                    StreamsStore.pause(stream2, response => response);
-                }
+                AlertRuleActions.pause(name).finally(() => this.list());
             }
         }
     },
@@ -174,25 +166,17 @@ const AlertRuleList = createReactClass({
 
         let alertValid;
         let colorValid;
-        let streamID;
         if(alert.condition_parameters === null || alert.stream === null){
             alertValid = false;
             colorValid = "#F7230C";
-            streamID = '';
         }else{
             alertValid = true;
             colorValid = "#000000";
-            streamID = alert.stream.id;
             if(alert.disabled){
                 colorValid = "#ABABAB";
             }
         }
         
-        let streamId2 = null;
-        if(alert.second_stream){
-            streamId2 = alert.second_stream.id;
-        }
-        
         const deleteAction = (
             <IfPermitted permissions="wizard_alerts_rules:delete">
                 <button id="delete-alert" type="button" className="btn btn-md btn-primary"
@@ -215,14 +199,14 @@ const AlertRuleList = createReactClass({
         let toggleStreamLink;
         if (alert.disabled) {
             toggleStreamLink = (
-                <Button bsStyle="success" onClick={this._onResume(streamID, streamId2)} disabled={!alertValid}
+                <Button bsStyle="success" onClick={this._onResume(alert.title)} disabled={!alertValid}
                         title={this.state.messages.infoEnable} style={{whiteSpace: 'pre'}} >
                     <FormattedMessage id ="wizard.enable" defaultMessage="Enable " />
                 </Button>
             );
         } else {
             toggleStreamLink = (
-                <Button bsStyle="primary" onClick={this._onPause(alert.title, streamID, streamId2)} disabled={!alertValid}
+                <Button bsStyle="primary" onClick={this._onPause(alert.title)} disabled={!alertValid}
                         title={this.state.messages.infoDisable} >
                     <FormattedMessage id ="wizard.disable" defaultMessage="Disable" />
                 </Button>
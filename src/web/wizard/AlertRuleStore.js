@@ -179,6 +179,38 @@ const AlertRuleStore = Reflux.createStore({
         AlertRuleActions.clone.promise(promise);
     },
 
+    pause(name) {
+        const url = URLUtils.qualifyUrl(this.sourceUrl + '/' + encodeURIComponent(name) + '/pause');
+        const method = 'POST';
+
+        const promise = fetch(method, url)
+            .then(() => {
+                UserNotification.success('Alert rule successfully disabled');
+                return true;
+            }, (error) => {
+                UserNotification.error(`Disabling alert rule failed with status: ${error.message}`,
+                    'Could not disable alert rule');
+            });
+
+        AlertRuleActions.pause.promise(promise);
+    },
+
+    resume(name) {
+        const url = URLUtils.qualifyUrl(this.sourceUrl + '/' + encodeURIComponent(name) + '/resume');
+        const method = 'POST';
+
+        const promise = fetch(method, url)
+            .then(() => {
+                UserNotification.success('Alert rule successfully enabled');
+                return true;
+            }, (error) => {
+                UserNotification.error(`Enabling alert rule failed with status: ${error.message}`,
+                    'Could not enable alert rule');
+            });
+
+        AlertRuleActions.resume.promise(promise);
+    },
+
     exportAlertRules(titles){
 	const url = URLUtils.qualifyUrl(this.sourceUrl + '/export');
         const method = 'POST';
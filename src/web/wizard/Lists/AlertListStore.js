@@ -71,6 +71,7 @@ const AlertListStore = Reflux.createStore({
             title: newList.title,
             description: newList.description,
             lists: newList.lists,
+            kind: newList.kind,
         };
 
         const promise = fetch(method, url, request)
@@ -95,6 +96,7 @@ const AlertListStore = Reflux.createStore({
             description: updatedList.description,
             usage: updatedList.usage,
             lists: updatedList.lists,
+            kind: updatedList.kind,
         };
 
         const promise = fetch(method, url, request)
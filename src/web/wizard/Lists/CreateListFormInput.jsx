@@ -37,6 +37,7 @@ const INIT_LIST = {
     title: '',
     description: '',
     lists: '',
+    kind: 'PLAIN',
     };
 
 const CreateListFormInput = createReactClass({
@@ -174,6 +175,16 @@ const CreateListFormInput = createReactClass({
                                onChange={this._onUpdate('description')}
                                defaultValue = {this.state.list.description}
                                name="description"/>
+                        <Input id="kind" type="select" label={<FormattedMessage id= "wizard.fieldListKind" defaultMessage= "Kind of list" />}
+                               onChange={this._onUpdate('kind')}
+                               defaultValue = {this.state.list.kind || 'PLAIN'}
+                               name="kind">
+                            <option value="PLAIN">{this.context.intl.formatMessage({id: "wizard.listKindPlain", defaultMessage: "Values"})}</option>
+                            <option value="CIDR">{this.context.intl.formatMessage({id: "wizard.listKindCidr", defaultMessage: "Networks (CIDR)"})}</option>
+                            <option value="PREFIX">{this.context.intl.formatMessage({id: "wizard.listKindPrefix", defaultMessage: "Prefixes"})}</option>
+                            <option value="KEYWORD">{this.context.intl.formatMessage({id: "wizard.listKindKeyword", defaultMessage: "Keywords (contained in the field)"})}</option>
+                            <option value="REGEX">{this.context.intl.formatMessage({id: "wizard.listKindRegex", defaultMessage: "Regular expressions (one per line)"})}</option>
+                        </Input>
                     </Col>
                 </Row>
                 <Row style={style}>
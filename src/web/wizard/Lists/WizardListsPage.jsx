@@ -47,7 +47,10 @@ const WizardListsPage = createReactClass ({
                 {name: 'Lists', enabled: true}],
             default_values: {
             },
-            import_policy: "DONOTHING"
+            import_policy: "DONOTHING",
+            list_rules_mode: "PIPELINE_PER_ALERT",
+            share_streams: false,
+            off_heap_threshold: 1000000
         };
     },
 
@@ -43,6 +43,9 @@ const ManageSettings = createReactClass({
                 field_order: this.props.config.field_order,
                 default_values: this.props.config.default_values,
                 import_policy: this.props.config.import_policy,
+                list_rules_mode: this.props.config.list_rules_mode,
+                share_streams: this.props.config.share_streams,
+                off_heap_threshold: this.props.config.off_heap_threshold,
             },
         };
     },
@@ -209,6 +212,21 @@ const ManageSettings = createReactClass({
         update.import_policy = FormsUtils.getValueFromInput(event.target);
         this.setState({config: update});
     },
+    _onShareStreamsChange(event){
+        const update = ObjectUtils.clone(this.state.config);
+        update.share_streams = event.target.checked;
+        this.setState({config: update});
+    },
+    _onOffHeapThresholdChange(event){
+        const update = ObjectUtils.clone(this.state.config);
+        update.off_heap_threshold = parseInt(event.target.value);
+        this.setState({config: update});
+    },
+    _onListRulesModeChange(event){
+        const update = ObjectUtils.clone(this.state.config);
+        update.list_rules_mode = FormsUtils.getValueFromInput(event.target);
+        this.setState({config: update});
+    },
 
     render() {
         if (this._isLoading()) {
@@ -287,6 +305,46 @@ const ManageSettings = createReactClass({
                       </div>
                   </OverlayElement>
                 </FormGroup>
+
+                <h3><FormattedMessage id= "wizard.listRulesMode" defaultMessage= "List rules" /></h3>
+                <p><FormattedMessage id= "wizard.descriptionListRulesMode" defaultMessage= "Choose how the rules on lists are evaluated. Applies to the alert rules saved afterwards." /></p>
+                <FormGroup>
+                  <div className="radio">
+                    <label>
+                      <input type="radio" value="PIPELINE_PER_ALERT" checked={!this.state.config.list_rules_mode || this.state.config.list_rules_mode === 'PIPELINE_PER_ALERT'} onChange={this._onListRulesModeChange}/>
+                        <FormattedMessage id= "wizard.pipelinePerAlert" defaultMessage= "One pipeline per alert rule" />
+                    </label>
+                  </div>
+                  <div className="radio">
+                    <label>
+                      <input type="radio" value="SHARED_PIPELINE" checked={this.state.config.list_rules_mode === 'SHARED_PIPELINE'} onChange={this._onListRulesModeChange}/>
+                        <FormattedMessage id= "wizard.sharedPipeline" defaultMessage= "A single pipeline shared by all alert rules" />
+                    </label>
+                  </div>
+                  <div className="radio">
+                    <label>
+                      <input type="radio" value="MESSAGE_PROCESSOR" checked={this.state.config.list_rules_mode === 'MESSAGE_PROCESSOR'} onChange={this._onListRulesModeChange}/>
+                        <FormattedMessage id= "wizard.messageProcessor" defaultMessage= "Wizard message processor, without pipeline" />
+                    </label>
+                  </div>
+                </FormGroup>
+
+                <h3><FormattedMessage id= "wizard.streams" defaultMessage= "Streams" /></h3>
+                <p><FormattedMessage id= "wizard.descriptionShareStreams" defaultMessage= "Alert rules with the same field rules and no list rule can use a single stream. Disabling one of them moves it to its own stream." /></p>
+                <FormGroup>
+                  <div className="checkbox">
+                    <label>
+                      <input type="checkbox" checked={this.state.config.share_streams === true} onChange={this._onShareStreamsChange}/>
+                        <FormattedMessage id= "wizard.shareStreams" defaultMessage= "Share identical streams" />
+                    </label>
+                  </div>
+                </FormGroup>
+
+                <h3><FormattedMessage id= "wizard.lists" defaultMessage= "Lists" /></h3>
+                <p><FormattedMessage id= "wizard.descriptionOffHeapThreshold" defaultMessage= "Lists with at least this number of entries keep them out of the Java heap. Applies to the lists loaded afterwards." /></p>
+                <Input ref="off_heap_threshold" id="off_heap_threshold" name="off_heap_threshold" type="number" min="1"
+                       label={<FormattedMessage id= "wizard.offHeapThreshold" defaultMessage= "Off heap threshold (entries)" />}
+                       onChange={this._onOffHeapThresholdChange} value={this.state.config.off_heap_threshold}/>
                   
               </Col>
               <Col md={6}> 
@@ -100,7 +100,10 @@ const WizardPage = createReactClass({
                 grace: 1,
                 backlog: 500
             },
-            import_policy: "DONOTHING"
+            import_policy: "DONOTHING",
+            list_rules_mode: "PIPELINE_PER_ALERT",
+            share_streams: false,
+            off_heap_threshold: 1000000
         };
     },
     